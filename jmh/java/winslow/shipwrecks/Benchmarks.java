@@ -0,0 +1,46 @@
+package winslow.shipwrecks;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/*
+ * Shared setup for the JMH benchmarks. Each benchmark class runs in the winslow.shipwrecks package so it can reach
+ * the package-private generation code, and needs nothing but the mod and the Minecraft/Forge libraries on the
+ * classpath, no client or server.
+ *
+ * Build with jmh-core and jmh-generator-annprocess on the classpath, along with the sim source root for MemoryWorld
+ * and GenerationSimulator.bootstrap, then run every benchmark with
+ *   java -cp <classpath> org.openjdk.jmh.Main winslow.shipwrecks
+ * or one class, for example org.openjdk.jmh.Main PlacementBenchmark -p structure=schooner
+ */
+final class Benchmarks {
+    static final int SEA_LEVEL = 63;
+    static final int FLOOR = 40; //MemoryWorld seafloor, 23 blocks under sea level
+    static final BlockPos ORIGIN = new BlockPos(8, FLOOR, 8);
+    static final String STRUCTURE_PATH = "/assets/" + ShipwrecksMain.MODID + "/structures/";
+
+    private static boolean ready = false;
+
+    private Benchmarks() {
+    }
+
+    /*
+     * Register vanilla content and load the default config, structures and loot, once per JVM
+     */
+    static synchronized void bootstrap() {
+        if (ready)
+            return;
+
+        try {
+            File config = File.createTempFile(ShipwrecksMain.MODID, ".cfg");
+            config.deleteOnExit();
+            GenerationSimulator.bootstrap(config);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ready = true;
+    }
+}
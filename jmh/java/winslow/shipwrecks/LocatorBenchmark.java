@@ -0,0 +1,48 @@
+package winslow.shipwrecks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Choosing wrecks: the weighted structure pick on its own, and the whole site for a grid cell including the biome
+ * lookups. Cells walk along a row so the biome provider's cache doesn't hide the lookups.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LocatorBenchmark {
+    private final Random random = new Random(0);
+    private ShipwreckConfig.Snapshot config;
+    private MemoryWorld world;
+    private int cellX = 0;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.bootstrap();
+        config = ShipwreckConfig.get();
+        world = new MemoryWorld(0, Benchmarks.FLOOR);
+    }
+
+    @Benchmark
+    public String oceanStructure() {
+        return WreckLocator.getStructureName(config, true, random);
+    }
+
+    @Benchmark
+    public String beachStructure() {
+        return WreckLocator.getStructureName(config, false, random);
+    }
+
+    @Benchmark
+    public WreckLocator.WreckSite site() {
+        return WreckLocator.getSite(world, config, cellX++, 0);
+    }
+}
@@ -0,0 +1,42 @@
+package winslow.shipwrecks;
+
+import net.minecraft.inventory.InventoryBasic;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Filling an empty chest from each loot tier, what happens when a player first opens a wreck chest
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class LootBenchmark {
+    @Param({"cargo", "captain", "low", "med", "high", "epic"})
+    public String pool;
+
+    private final Random random = new Random(0);
+    private final InventoryBasic chest = new InventoryBasic("chest", false, LootData.CHEST_SLOTS);
+    private WreckLootTable table;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.bootstrap();
+        table = LootRegistry.getTable(pool);
+    }
+
+    @Benchmark
+    public InventoryBasic fill() {
+        chest.clear();
+        table.fill(chest, random);
+        return chest;
+    }
+}
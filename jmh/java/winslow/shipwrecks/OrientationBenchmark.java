@@ -0,0 +1,42 @@
+package winslow.shipwrecks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Rotating facing and axis values into each of the four orientations, once per palette entry when a template compiles
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OrientationBenchmark {
+    private static final String[] FACINGS = {"east", "west", "north", "south", "up", "down"};
+    private static final String[] AXES = {"X", "Y", "Z", "NONE"};
+
+    @Setup
+    public void setUp() {
+        Benchmarks.bootstrap();
+    }
+
+    @Benchmark
+    public void facing(Blackhole blackhole) {
+        for (int orientation = 0; orientation < StructureTemplate.ORIENTATIONS; ++orientation)
+            for (String facing : FACINGS)
+                blackhole.consume(StructureTemplate.getFacing(orientation, facing));
+    }
+
+    @Benchmark
+    public void axis(Blackhole blackhole) {
+        for (int orientation = 0; orientation < StructureTemplate.ORIENTATIONS; ++orientation)
+            for (String axis : AXES)
+                blackhole.consume(StructureTemplate.getAxis(orientation, axis));
+    }
+}
@@ -0,0 +1,48 @@
+package winslow.shipwrecks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Applying a finished plan on the server thread: writing every block into chunk storage, creating tile entities,
+ * handing chests their loot, relighting the touched chunks and recording the wreck. Each call gets fresh chunks
+ * (set up outside the measurement) so no block is skipped for already being in place.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlacementBenchmark {
+    @Param({"rowboat", "sailboatside", "sailboatup", "schooner", "sloop", "waverunner"})
+    public String structure;
+
+    private final ShipwreckGen gen = new ShipwreckGen();
+    private WreckPlan plan;
+    private MemoryWorld world;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.bootstrap();
+        plan = WreckPlanner.plan(ShipwreckConfig.get(), 0, structure, Benchmarks.ORIGIN, Benchmarks.SEA_LEVEL, new Random(0));
+    }
+
+    @Setup(Level.Invocation)
+    public void newWorld() {
+        world = new MemoryWorld(0, Benchmarks.FLOOR);
+        world.loadArea(plan.bounds);
+    }
+
+    @Benchmark
+    public void place() {
+        gen.applyPlan(world, plan);
+    }
+}
@@ -0,0 +1,37 @@
+package winslow.shipwrecks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Planning a wreck on a worker thread: picking the variant and composing every section, chance section and damage
+ * pass into the final block list. A new seed each call so chance and damage rolls vary like they do in game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PlanBenchmark {
+    @Param({"rowboat", "sailboatside", "sailboatup", "schooner", "sloop", "waverunner"})
+    public String structure;
+
+    private long seed = 0;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.bootstrap();
+    }
+
+    @Benchmark
+    public WreckPlan plan() {
+        return WreckPlanner.plan(ShipwreckConfig.get(), 0, structure, Benchmarks.ORIGIN, Benchmarks.SEA_LEVEL, new Random(seed++));
+    }
+}
@@ -0,0 +1,45 @@
+package winslow.shipwrecks;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.Chunk;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Finding the seafloor under a wreck site, the single column lookup generation does once per wreck
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SeafloorBenchmark {
+    @Param({"rowboat", "sailboatside", "sailboatup", "schooner", "sloop", "waverunner"})
+    public String structure;
+
+    private Chunk chunk;
+    private BlockPos site;
+    private int seaLevel;
+
+    @Setup
+    public void setUp() {
+        Benchmarks.bootstrap();
+        int radius = StructureRegistry.getTemplate(structure).radius;
+        site = new BlockPos(Benchmarks.ORIGIN.getX(), 0, Benchmarks.ORIGIN.getZ());
+        MemoryWorld world = new MemoryWorld(0, Benchmarks.FLOOR);
+        world.loadArea(WreckFootprints.getFootprint(site, radius));
+        chunk = world.getChunkFromBlockCoords(site);
+        seaLevel = world.getSeaLevel();
+    }
+
+    @Benchmark
+    public BlockPos floor() {
+        return Seafloor.getFloor(chunk, site, seaLevel);
+    }
+}
@@ -0,0 +1,68 @@
+package winslow.shipwrecks;
+
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Loading a structure: parsing the JSON file, decoding the binary format, and compiling the eight pre-rotated variants
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateBenchmark {
+    @Param({"rowboat", "sailboatside", "sailboatup", "schooner", "sloop", "waverunner"})
+    public String structure;
+
+    private byte[] json;
+    private byte[] binary;
+    private StructureData data;
+
+    @Setup
+    public void setUp() throws IOException {
+        Benchmarks.bootstrap();
+        try (InputStream in = ShipwrecksMain.class.getResourceAsStream(Benchmarks.STRUCTURE_PATH + structure + ".json")) {
+            json = ByteStreams.toByteArray(in);
+        }
+        data = parseJson();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        StructureCodec.write(data, out);
+        binary = out.toByteArray();
+    }
+
+    @Benchmark
+    public StructureData parseJson() throws IOException {
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8)) {
+            return StructureData.fromJson((JsonObject) new JsonParser().parse(reader));
+        }
+    }
+
+    @Benchmark
+    public StructureData decodeBinary() throws IOException {
+        return StructureCodec.read(ByteBuffer.wrap(binary));
+    }
+
+    @Benchmark
+    public StructureTemplate compile() {
+        return StructureTemplate.compile(structure, data);
+    }
+}
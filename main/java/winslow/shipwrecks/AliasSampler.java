@@ -0,0 +1,97 @@
+package winslow.shipwrecks;
+
+import java.util.Random;
+
+/*
+ * Picks an index with probability weights[i] / sum(weights) in constant time using Vose's alias method.
+ * Built once from a weight list, sampling never allocates. Everything is kept in integers so the
+ * probabilities are exact, and entries with a weight of 0 can never be picked.
+ */
+final class AliasSampler {
+    private final int total;
+    private final int[] threshold; //column i returns i when a roll below total lands under threshold[i]
+    private final int[] alias; //and alias[i] otherwise
+
+    AliasSampler(int[] weights) {
+        int size = weights.length;
+        long sum = 0;
+        for (int weight : weights) {
+            if (weight < 0)
+                throw new IllegalArgumentException("Negative weight " + weight);
+            sum += weight;
+        }
+        if (sum > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Weights add up to more than " + Integer.MAX_VALUE);
+
+        total = (int) sum;
+        threshold = new int[size];
+        alias = new int[size];
+        if (total == 0)
+            return;
+
+        //each weight scaled by the number of columns, so a full column holds exactly total
+        long[] scaled = new long[size];
+        int[] small = new int[size];
+        int[] large = new int[size];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int i = 0; i < size; ++i) {
+            scaled[i] = (long) weights[i] * size;
+            if (scaled[i] < total)
+                small[smallCount++] = i;
+            else
+                large[largeCount++] = i;
+        }
+
+        //top up each underfull column with part of an overfull one
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[--largeCount];
+            threshold[less] = (int) scaled[less];
+            alias[less] = more;
+
+            scaled[more] -= total - scaled[less];
+            if (scaled[more] < total)
+                small[smallCount++] = more;
+            else
+                large[largeCount++] = more;
+        }
+
+        //whatever is left is full
+        while (largeCount > 0) {
+            int i = large[--largeCount];
+            threshold[i] = total;
+            alias[i] = i;
+        }
+        while (smallCount > 0) {
+            int i = small[--smallCount];
+            threshold[i] = total;
+            alias[i] = i;
+        }
+    }
+
+    /*
+     * True when every weight is 0 and there is nothing to pick
+     */
+    boolean isEmpty() {
+        return total == 0;
+    }
+
+    /*
+     * Number of weights the sampler was built from
+     */
+    int size() {
+        return threshold.length;
+    }
+
+    /*
+     * Pick an index, -1 if every weight is 0
+     */
+    int sample(Random random) {
+        if (total == 0)
+            return -1;
+
+        int column = random.nextInt(threshold.length);
+        return random.nextInt(total) < threshold[column] ? column : alias[column];
+    }
+}
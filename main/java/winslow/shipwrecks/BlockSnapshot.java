@@ -0,0 +1,148 @@
+package winslow.shipwrecks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * The block names and block state properties registered in a running game, saved with /shipwrecks blocks so
+ * structure files can be checked without Minecraft. Checks follow the rules StructureTemplate uses to resolve a
+ * block spec, so a structure that passes here compiles in game without skipped blocks or errors.
+ *
+ * Format: {"blocks": {"minecraft:log": {"axis": {"type": "net.minecraft.block.BlockLog$EnumAxis", "values": ["X", ...]}}}}
+ * Enum values are stored by constant name, other values by the property's name for them.
+ */
+final class BlockSnapshot {
+    //the value types StructureTemplate.resolveState knows how to set for each property
+    private static final Map<String, Set<String>> SUPPORTED_TYPES = new HashMap<>();
+
+    static {
+        SUPPORTED_TYPES.put("facing", types("net.minecraft.util.EnumFacing"));
+        SUPPORTED_TYPES.put("axis", types("net.minecraft.block.BlockLog$EnumAxis"));
+        SUPPORTED_TYPES.put("variant", types("net.minecraft.block.BlockPlanks$EnumType"));
+        SUPPORTED_TYPES.put("half", types("net.minecraft.block.BlockDoor$EnumDoorHalf", "net.minecraft.block.BlockStairs$EnumHalf",
+                "net.minecraft.block.BlockSlab$EnumBlockHalf"));
+        SUPPORTED_TYPES.put("part", types("net.minecraft.block.BlockBed$EnumPartType"));
+    }
+
+    private static final String[] HORIZONTAL = {"EAST", "WEST", "NORTH", "SOUTH"};
+    private static final String[] HORIZONTAL_AXES = {"X", "Z"};
+
+    private final Map<String, Map<String, Property>> blocks = new LinkedHashMap<>();
+
+    private static final class Property {
+        final String type;
+        final Set<String> values;
+
+        Property(String type, Collection<String> values) {
+            this.type = type;
+            this.values = new LinkedHashSet<>(values);
+        }
+    }
+
+    private static Set<String> types(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+
+    void addBlock(String name) {
+        blocks.computeIfAbsent(name, key -> new LinkedHashMap<>());
+    }
+
+    void addProperty(String block, String property, String type, List<String> values) {
+        blocks.computeIfAbsent(block, key -> new LinkedHashMap<>()).put(property, new Property(type, values));
+    }
+
+    int size() {
+        return blocks.size();
+    }
+
+    /*
+     * Check a palette entry, returns what is wrong with it or null if it resolves cleanly in every orientation
+     */
+    String check(StructureData.BlockSpec spec) {
+        Map<String, Property> properties = blocks.get(getRegistryName(spec.block));
+        if (properties == null)
+            return "unknown block " + spec.block;
+
+        for (String name : StructureData.PROPERTIES) {
+            String value = spec.getProperty(name);
+            Property property = properties.get(name);
+            if (value == null || property == null) //properties the block doesn't have are ignored in game too
+                continue;
+
+            if (!SUPPORTED_TYPES.get(name).contains(property.type))
+                return spec.block + " has a " + name + " of type " + property.type + ", which structure files can't set";
+
+            //facing and axis are rotated with the structure, so every rotation must be allowed too
+            String[] needed = {value};
+            if (name.equals("facing")) {
+                value = value.toUpperCase(Locale.ROOT);
+                needed = Arrays.asList(HORIZONTAL).contains(value) ? HORIZONTAL : new String[]{value};
+            } else if (name.equals("axis") && Arrays.asList(HORIZONTAL_AXES).contains(value)) {
+                needed = HORIZONTAL_AXES;
+            }
+
+            for (String allowed : needed)
+                if (!property.values.contains(allowed))
+                    return spec.block + " can't have " + name + " " + allowed + " (allowed: " + property.values + ")";
+        }
+        return null;
+    }
+
+    /*
+     * Block names in structure files may leave out the minecraft namespace, like Block.getBlockFromName allows
+     */
+    private static String getRegistryName(String block) {
+        String name = block.toLowerCase(Locale.ROOT);
+        return name.indexOf(':') < 0 ? "minecraft:" + name : name;
+    }
+
+    JsonObject toJson() {
+        JsonObject json = new JsonObject();
+        for (Map.Entry<String, Map<String, Property>> block : blocks.entrySet()) {
+            JsonObject properties = new JsonObject();
+            for (Map.Entry<String, Property> property : block.getValue().entrySet()) {
+                JsonObject propertyJson = new JsonObject();
+                propertyJson.addProperty("type", property.getValue().type);
+                JsonArray values = new JsonArray();
+                for (String value : property.getValue().values)
+                    values.add(new JsonPrimitive(value));
+                propertyJson.add("values", values);
+                properties.add(property.getKey(), propertyJson);
+            }
+            json.add(block.getKey(), properties);
+        }
+
+        JsonObject root = new JsonObject();
+        root.add("blocks", json);
+        return root;
+    }
+
+    static BlockSnapshot fromJson(JsonObject jsonObj) {
+        BlockSnapshot snapshot = new BlockSnapshot();
+        for (Map.Entry<String, JsonElement> block : JsonFields.getObject(jsonObj, "blocks").entrySet()) {
+            snapshot.addBlock(block.getKey());
+            for (Map.Entry<String, JsonElement> property : block.getValue().getAsJsonObject().entrySet()) {
+                JsonObject propertyJson = property.getValue().getAsJsonObject();
+                JsonArray values = JsonFields.getArray(propertyJson, "values");
+                String[] read = new String[values.size()];
+                for (int i = 0; i < read.length; ++i)
+                    read[i] = values.get(i).getAsString();
+                snapshot.addProperty(block.getKey(), property.getKey(), JsonFields.get(propertyJson, "type").getAsString(), Arrays.asList(read));
+            }
+        }
+        return snapshot;
+    }
+}
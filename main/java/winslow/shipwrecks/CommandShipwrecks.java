@@ -0,0 +1,211 @@
+package winslow.shipwrecks;
+
+import com.google.gson.GsonBuilder;
+import net.minecraft.block.Block;
+import net.minecraft.block.properties.IProperty;
+import net.minecraft.command.CommandBase;
+import net.minecraft.command.CommandException;
+import net.minecraft.command.ICommandSender;
+import net.minecraft.command.WrongUsageException;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.text.TextComponentString;
+import net.minecraftforge.fml.common.registry.ForgeRegistries;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/*
+ * /shipwrecks server command
+ */
+class CommandShipwrecks extends CommandBase {
+    private static final int MAX_LOCATE_RADIUS = 32; //in grid cells, every cell costs a biome lookup on the server thread
+    private static final int MAX_PLACED_DISTANCE = 5000; //in blocks, every 512 block region in range may be loaded
+    private static final String BLOCKS_FILE = "./" + ShipwrecksMain.MODID + "_blocks.json";
+
+    @Override
+    public String getName() {
+        return "shipwrecks";
+    }
+
+    @Override
+    public String getUsage(ICommandSender sender) {
+        return "/shipwrecks <locate|placed> <structure|any> [radius] | /shipwrecks blocks | /shipwrecks stats [reset] | /shipwrecks pregen <radius|status|stop>";
+    }
+
+    @Override
+    public int getRequiredPermissionLevel() {
+        return 2;
+    }
+
+    @Override
+    public void execute(MinecraftServer server, ICommandSender sender, String[] args) throws CommandException {
+        if (args.length < 1)
+            throw new WrongUsageException(getUsage(sender));
+
+        switch (args[0]) {
+            case "locate":
+                locate(sender, args);
+                break;
+            case "placed":
+                placed(sender, args);
+                break;
+            case "blocks":
+                blocks(sender);
+                break;
+            case "stats":
+                stats(sender, args);
+                break;
+            case "pregen":
+                pregen(sender, args);
+                break;
+            default:
+                throw new WrongUsageException(getUsage(sender));
+        }
+    }
+
+    /*
+     * Find the nearest wreck of a structure type without loading any chunks
+     */
+    private void locate(ICommandSender sender, String[] args) throws CommandException {
+        if (args.length < 2)
+            throw new WrongUsageException(getUsage(sender));
+
+        String structure = args[1].equals("any") ? null : args[1];
+        int radius = args.length > 2 ? parseInt(args[2], 1, MAX_LOCATE_RADIUS) : MAX_LOCATE_RADIUS;
+
+        BlockPos from = sender.getPosition();
+        WreckLocator.WreckSite site = WreckLocator.locate(sender.getEntityWorld(), from, structure, radius);
+        if (site == null) {
+            sender.sendMessage(new TextComponentString("No " + (structure == null ? "wreck" : structure) + " found within " + radius + " cells"));
+            return;
+        }
+
+        int distance = (int) Math.sqrt(site.pos.distanceSq(from.getX(), 0, from.getZ()));
+        sender.sendMessage(new TextComponentString(site.structure + " at " + site.pos.getX() + ", " + site.pos.getZ()
+                + " (" + distance + " blocks away)"));
+    }
+
+    /*
+     * Find the nearest wreck that has actually been placed, using the wreck index
+     */
+    private void placed(ICommandSender sender, String[] args) throws CommandException {
+        if (args.length < 2)
+            throw new WrongUsageException(getUsage(sender));
+
+        String structure = args[1].equals("any") ? null : args[1];
+        int distance = args.length > 2 ? parseInt(args[2], 1, MAX_PLACED_DISTANCE) : MAX_PLACED_DISTANCE;
+
+        BlockPos from = sender.getPosition();
+        WreckRecord record = WreckIndex.get(sender.getEntityWorld()).getNearest(from, structure, distance);
+        if (record == null) {
+            sender.sendMessage(new TextComponentString("No placed " + (structure == null ? "wreck" : structure) + " within " + distance + " blocks"));
+            return;
+        }
+
+        int opened = 0;
+        for (int i = 0; i < record.getChestCount(); ++i)
+            if (record.getChestStatus(i) == WreckRecord.LOOT_OPENED)
+                ++opened;
+
+        sender.sendMessage(new TextComponentString(record.structure + " at " + record.origin.getX() + ", " + record.origin.getY()
+                + ", " + record.origin.getZ() + " (" + (int) Math.sqrt(record.origin.distanceSq(from)) + " blocks away, "
+                + opened + "/" + record.getChestCount() + " chests opened)"));
+    }
+
+    /*
+     * Save every registered block and its properties for StructurePackCompiler to check structures against
+     */
+    private void blocks(ICommandSender sender) throws CommandException {
+        BlockSnapshot snapshot = new BlockSnapshot();
+        for (Block block : ForgeRegistries.BLOCKS.getValuesCollection()) {
+            String name = String.valueOf(block.getRegistryName());
+            snapshot.addBlock(name);
+            for (IProperty<?> property : block.getBlockState().getProperties())
+                snapshot.addProperty(name, property.getName(), property.getValueClass().getName(), getValueNames(property));
+        }
+
+        File file = new File(BLOCKS_FILE);
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            new GsonBuilder().setPrettyPrinting().create().toJson(snapshot.toJson(), writer);
+        } catch (IOException e) {
+            throw new CommandException("Unable to write " + file.getPath() + ": " + e.getMessage());
+        }
+        sender.sendMessage(new TextComponentString("Saved " + snapshot.size() + " blocks to " + file.getPath()));
+    }
+
+    /*
+     * Show the generation counters and timings, or start them over
+     */
+    private void stats(ICommandSender sender, String[] args) {
+        if (args.length > 1 && args[1].equals("reset")) {
+            WreckMetrics.reset();
+            sender.sendMessage(new TextComponentString("Shipwreck stats reset"));
+            return;
+        }
+        for (String line : WreckMetrics.getReport())
+            sender.sendMessage(new TextComponentString(line));
+    }
+
+    /*
+     * Generate the wrecks within a radius of blocks ahead of time, or check on or stop the running pregen
+     */
+    private void pregen(ICommandSender sender, String[] args) throws CommandException {
+        if (args.length < 2)
+            throw new WrongUsageException(getUsage(sender));
+
+        if (args[1].equals("status")) {
+            String status = WreckPregen.getStatus();
+            sender.sendMessage(new TextComponentString(status == null ? "No shipwreck pregen running" : status));
+            return;
+        }
+        if (args[1].equals("stop")) {
+            sender.sendMessage(new TextComponentString(WreckPregen.stop()
+                    ? "Stopping shipwreck pregen once the wrecks already planned are placed" : "No shipwreck pregen running"));
+            return;
+        }
+
+        int radius = parseInt(args[1], 1, 100000);
+        if (sender.getEntityWorld().provider.getDimension() != 0)
+            throw new CommandException("Shipwrecks only generate in the overworld");
+        BlockPos from = sender.getPosition();
+        if (!WreckPregen.start(sender.getEntityWorld(), from.getX(), from.getZ(), radius))
+            throw new CommandException("A shipwreck pregen is already running, see /shipwrecks pregen status");
+        sender.sendMessage(new TextComponentString("Pregenerating shipwrecks within " + radius + " blocks of "
+                + from.getX() + ", " + from.getZ() + ", progress goes to the server log"));
+    }
+
+    /*
+     * Enum values by constant name, since that is what structure files use
+     */
+    private static <T extends Comparable<T>> List<String> getValueNames(IProperty<T> property) {
+        List<String> names = new ArrayList<>();
+        for (T value : property.getAllowedValues())
+            names.add(value instanceof Enum ? ((Enum<?>) value).name() : property.getName(value));
+        return names;
+    }
+
+    @Override
+    public List<String> getTabCompletions(MinecraftServer server, ICommandSender sender, String[] args, BlockPos targetPos) {
+        if (args.length == 1)
+            return getListOfStringsMatchingLastWord(args, "locate", "placed", "blocks", "stats", "pregen");
+        if (args.length == 2 && (args[0].equals("locate") || args[0].equals("placed"))) {
+            List<String> names = new ArrayList<>(Arrays.asList(ShipwreckConfig.getNames()));
+            names.add("any");
+            return getListOfStringsMatchingLastWord(args, names);
+        }
+        if (args.length == 2 && args[0].equals("stats"))
+            return getListOfStringsMatchingLastWord(args, "reset");
+        if (args.length == 2 && args[0].equals("pregen"))
+            return getListOfStringsMatchingLastWord(args, "status", "stop");
+        return Collections.emptyList();
+    }
+}
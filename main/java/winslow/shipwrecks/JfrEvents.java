@@ -0,0 +1,149 @@
+package winslow.shipwrecks;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * The JFR event types behind WreckEvents, one per phase so each can be turned on or given a threshold on its own in
+ * a .jfc file (winslow.shipwrecks.*). Only WreckEvents should touch this class.
+ */
+final class JfrEvents {
+    private JfrEvents() {
+    }
+
+    @Category({"Shipwrecks"})
+    @StackTrace(false)
+    abstract static class WreckEvent extends Event {
+        @Label("Structure")
+        String structure;
+
+        @Label("Orientation")
+        @Description("Variant index, 0-3 for E, W, N, S and 4-7 mirrored, -1 if not chosen yet")
+        int orientation;
+
+        @Label("Chunk X")
+        int chunkX;
+
+        @Label("Chunk Z")
+        int chunkZ;
+
+        @Label("Blocks")
+        int blocks;
+    }
+
+    @Name("winslow.shipwrecks.Surface")
+    @Label("Wreck Site Generation")
+    @Description("Picking a wreck site for a chunk, fitting it against other wrecks and handing it to the planner")
+    static final class SurfaceEvent extends WreckEvent {
+    }
+
+    @Name("winslow.shipwrecks.Seafloor")
+    @Label("Wreck Seafloor")
+    static final class SeafloorEvent extends WreckEvent {
+    }
+
+    @Name("winslow.shipwrecks.Plan")
+    @Label("Wreck Plan")
+    @Description("Composing every pass of a wreck into its final block list, on a planner thread")
+    static final class PlanEvent extends WreckEvent {
+    }
+
+    @Name("winslow.shipwrecks.Sections")
+    @Label("Wreck Sections Pass")
+    static final class SectionsEvent extends WreckEvent {
+    }
+
+    @Name("winslow.shipwrecks.RandomSections")
+    @Label("Wreck Random Sections Pass")
+    static final class RandomSectionsEvent extends WreckEvent {
+    }
+
+    @Name("winslow.shipwrecks.ChanceSections")
+    @Label("Wreck Chance Sections Pass")
+    static final class ChanceSectionsEvent extends WreckEvent {
+    }
+
+    @Name("winslow.shipwrecks.Damage")
+    @Label("Wreck Damage Pass")
+    static final class DamageEvent extends WreckEvent {
+    }
+
+    @Name("winslow.shipwrecks.Placement")
+    @Label("Wreck Placement")
+    @Description("Writing slices of a finished plan into the world on the server thread, usually the whole plan")
+    static final class PlacementEvent extends WreckEvent {
+    }
+
+    @Name("winslow.shipwrecks.Loot")
+    @Label("Wreck Chest Loot")
+    static final class LootEvent extends WreckEvent {
+    }
+
+    //in Phase order, so begin can check a phase is being recorded before allocating its event
+    private static final EventType[] TYPES = {
+            EventType.getEventType(SurfaceEvent.class),
+            EventType.getEventType(SeafloorEvent.class),
+            EventType.getEventType(PlanEvent.class),
+            EventType.getEventType(SectionsEvent.class),
+            EventType.getEventType(RandomSectionsEvent.class),
+            EventType.getEventType(ChanceSectionsEvent.class),
+            EventType.getEventType(DamageEvent.class),
+            EventType.getEventType(PlacementEvent.class),
+            EventType.getEventType(LootEvent.class)
+    };
+
+    static Object begin(WreckEvents.Phase phase) {
+        if (!TYPES[phase.ordinal()].isEnabled())
+            return null;
+
+        WreckEvent event;
+        switch (phase) {
+            case SURFACE:
+                event = new SurfaceEvent();
+                break;
+            case SEAFLOOR:
+                event = new SeafloorEvent();
+                break;
+            case PLAN:
+                event = new PlanEvent();
+                break;
+            case SECTIONS:
+                event = new SectionsEvent();
+                break;
+            case RANDOM_SECTIONS:
+                event = new RandomSectionsEvent();
+                break;
+            case CHANCE_SECTIONS:
+                event = new ChanceSectionsEvent();
+                break;
+            case DAMAGE:
+                event = new DamageEvent();
+                break;
+            case PLACEMENT:
+                event = new PlacementEvent();
+                break;
+            default:
+                event = new LootEvent();
+        }
+        event.begin();
+        return event;
+    }
+
+    static void commit(Object handle, String structure, int orientation, int chunkX, int chunkZ, int blocks) {
+        WreckEvent event = (WreckEvent) handle;
+        event.end();
+        if (!event.shouldCommit()) //under the threshold
+            return;
+        event.structure = structure;
+        event.orientation = orientation;
+        event.chunkX = chunkX;
+        event.chunkZ = chunkZ;
+        event.blocks = blocks;
+        event.commit();
+    }
+}
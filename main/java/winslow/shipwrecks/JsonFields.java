@@ -0,0 +1,35 @@
+package winslow.shipwrecks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+/*
+ * Required members of the JSON files the mod reads (structures, loot tables and block snapshots). A missing or
+ * mistyped member throws IllegalArgumentException naming it, so the file's error says which key to fix.
+ */
+final class JsonFields {
+    private JsonFields() {
+    }
+
+    static JsonElement get(JsonObject jsonObj, String name) {
+        JsonElement element = jsonObj.get(name);
+        if (element == null || element.isJsonNull())
+            throw new IllegalArgumentException("Missing \"" + name + "\"");
+        return element;
+    }
+
+    static JsonArray getArray(JsonObject jsonObj, String name) {
+        JsonElement element = get(jsonObj, name);
+        if (!element.isJsonArray())
+            throw new IllegalArgumentException("\"" + name + "\" should be an array");
+        return element.getAsJsonArray();
+    }
+
+    static JsonObject getObject(JsonObject jsonObj, String name) {
+        JsonElement element = get(jsonObj, name);
+        if (!element.isJsonObject())
+            throw new IllegalArgumentException("\"" + name + "\" should be an object");
+        return element.getAsJsonObject();
+    }
+}
@@ -0,0 +1,38 @@
+package winslow.shipwrecks;
+
+import net.minecraft.inventory.IInventory;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.loot.LootContext;
+import net.minecraft.world.storage.loot.LootPool;
+import net.minecraft.world.storage.loot.LootTable;
+
+import java.util.Random;
+
+/*
+ * Stands in for a vanilla loot table so wreck chests can use the vanilla lazy fill: the chest only keeps the table
+ * name and seed, and the chest rolls its contents the first time a player opens it, a hopper pulls from it or it is
+ * broken. The roll itself comes from the loot pool's compiled WreckLootTable.
+ */
+class LazyLootTable extends LootTable {
+    private final String pool;
+
+    LazyLootTable(String pool) {
+        super(new LootPool[0]);
+        this.pool = pool;
+    }
+
+    @Override
+    public void fillInventory(IInventory inventory, Random rand, LootContext context) {
+        //looked up on every fill so reloaded tables take effect
+        WreckLootTable table = LootRegistry.getTable(pool);
+        if (table != null)
+            table.fill(inventory, rand);
+
+        if (inventory instanceof TileEntity) {
+            World world = ((TileEntity) inventory).getWorld();
+            if (world != null && !world.isRemote)
+                WreckIndex.get(world).setChestStatus(((TileEntity) inventory).getPos(), WreckRecord.LOOT_OPENED);
+        }
+    }
+}
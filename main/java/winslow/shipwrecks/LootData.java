@@ -0,0 +1,107 @@
+package winslow.shipwrecks;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Raw contents of a loot pool file with item names left unresolved, so it can be read and rolled without Minecraft.
+ * WreckLootTable compiles it into item stacks for the game, LootSimulator rolls it directly.
+ *
+ * {"pools": [{"rolls": 4 or {"min": 2, "max": 4},
+ *             "entries": [{"item": "minecraft:bread", "data": 0, "weight": 8, "min": 1, "max": 3}, ...]}]}
+ * data, weight, min and max are optional and default to 0, 1, 1 and min.
+ */
+final class LootData {
+    static final int CHEST_SLOTS = 27;
+
+    final Pool[] pools;
+
+    private LootData(Pool[] pools) {
+        this.pools = pools;
+    }
+
+    /*
+     * Rolls a number of times and adds one entry per roll
+     */
+    static final class Pool {
+        final int minRolls;
+        final int maxRolls;
+        final String[] items;
+        final int[] data;
+        final int[] weights;
+        final int[] minCounts;
+        final int[] maxCounts;
+
+        private Pool(int minRolls, int maxRolls, String[] items, int[] data, int[] weights, int[] minCounts, int[] maxCounts) {
+            this.minRolls = minRolls;
+            this.maxRolls = maxRolls;
+            this.items = items;
+            this.data = data;
+            this.weights = weights;
+            this.minCounts = minCounts;
+            this.maxCounts = maxCounts;
+        }
+
+        /*
+         * How many entries to add this time. Filling a chest calls this, then for each roll samples an entry,
+         * calls getCount and picks a slot, in that order.
+         */
+        int getRolls(Random random) {
+            return maxRolls > minRolls ? minRolls + random.nextInt(maxRolls - minRolls + 1) : minRolls;
+        }
+
+        int getCount(int entry, Random random) {
+            int min = minCounts[entry];
+            int max = maxCounts[entry];
+            return max > min ? min + random.nextInt(max - min + 1) : min;
+        }
+    }
+
+    static LootData fromJson(JsonObject jsonObj) {
+        List<Pool> pools = new ArrayList<>();
+        for (JsonElement poolElem : JsonFields.getArray(jsonObj, "pools")) {
+            JsonObject poolObj = poolElem.getAsJsonObject();
+
+            int minRolls;
+            int maxRolls;
+            JsonElement rolls = poolObj.get("rolls");
+            if (rolls == null || rolls.isJsonNull()) {
+                minRolls = maxRolls = 1;
+            } else if (rolls.isJsonObject()) {
+                minRolls = JsonFields.get(rolls.getAsJsonObject(), "min").getAsInt();
+                maxRolls = JsonFields.get(rolls.getAsJsonObject(), "max").getAsInt();
+            } else {
+                minRolls = maxRolls = rolls.getAsInt();
+            }
+            if (minRolls < 0 || maxRolls < minRolls)
+                throw new IllegalArgumentException("Bad rolls range " + minRolls + "-" + maxRolls);
+
+            List<JsonElement> entries = new ArrayList<>();
+            for (JsonElement entry : JsonFields.getArray(poolObj, "entries"))
+                entries.add(entry);
+
+            String[] items = new String[entries.size()];
+            int[] data = new int[items.length];
+            int[] weights = new int[items.length];
+            int[] minCounts = new int[items.length];
+            int[] maxCounts = new int[items.length];
+            for (int i = 0; i < items.length; ++i) {
+                JsonObject entry = entries.get(i).getAsJsonObject();
+                items[i] = JsonFields.get(entry, "item").getAsString();
+                data[i] = entry.has("data") ? entry.get("data").getAsInt() : 0;
+                weights[i] = entry.has("weight") ? entry.get("weight").getAsInt() : 1;
+                minCounts[i] = entry.has("min") ? entry.get("min").getAsInt() : 1;
+                maxCounts[i] = entry.has("max") ? entry.get("max").getAsInt() : minCounts[i];
+                if (minCounts[i] < 1 || maxCounts[i] < minCounts[i])
+                    throw new IllegalArgumentException("Bad count range for " + items[i]);
+            }
+
+            pools.add(new Pool(minRolls, maxRolls, items, data, weights, minCounts, maxCounts));
+        }
+        return new LootData(pools.toArray(new Pool[0]));
+    }
+}
@@ -0,0 +1,116 @@
+package winslow.shipwrecks;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import net.minecraft.util.ResourceLocation;
+import net.minecraft.world.storage.loot.LootTableList;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Loads the loot pools once and keeps the compiled tables in memory. Files in ./loot replace the pool of the same
+ * name packaged with the mod and can add new pools for custom structures.
+ */
+class LootRegistry {
+    private static final String ASSET_PATH = "/assets/" + ShipwrecksMain.MODID + "/loot/";
+    static final File LOOT_FOLDER = new File("./loot");
+    private static final String[] DEFAULT_POOLS = {"cargo", "captain", "low", "med", "high", "epic"};
+    //vanilla loot table names wreck chests are given so they fill lazily, see LazyLootTable
+    static final String LAZY_PREFIX = "chests/";
+    private static final String LAZY_STUB_PATH = "/assets/" + ShipwrecksMain.MODID + "/loot_tables/" + LAZY_PREFIX;
+
+    private static volatile Map<String, WreckLootTable> tables = Collections.emptyMap();
+    private static volatile Map<String, ResourceLocation> lazyLocations = Collections.emptyMap();
+    private static volatile boolean loaded = false;
+
+    /*
+     * read and compile every loot pool. Items must be registered before this is called.
+     */
+    static synchronized void loadTables() {
+        Map<String, WreckLootTable> compiled = new HashMap<>();
+
+        File[] files = LOOT_FOLDER.listFiles((dir, name) -> name.endsWith(".json"));
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName().substring(0, file.getName().length() - ".json".length());
+                try {
+                    WreckLootTable table = readTable(name, file.toURI().toURL().openStream());
+                    if (table != null)
+                        compiled.put(name, table);
+                } catch (IOException e) {
+                    System.out.println("Unable to load loot table " + name + ": " + e.getMessage());
+                }
+            }
+        }
+
+        for (String name : DEFAULT_POOLS) {
+            if (compiled.containsKey(name))
+                continue;
+            InputStream stream = ShipwrecksMain.class.getResourceAsStream(ASSET_PATH + name + ".json");
+            if (stream == null) {
+                System.out.println("Missing loot table " + name);
+                continue;
+            }
+            try {
+                WreckLootTable table = readTable(name, stream);
+                if (table != null)
+                    compiled.put(name, table);
+            } catch (IOException e) {
+                System.out.println("Unable to load loot table " + name + ": " + e.getMessage());
+            }
+        }
+
+        //Forge only fires LootTableLoadEvent for tables that have a file, so only pools with a packaged stub can be lazy
+        Map<String, ResourceLocation> locations = new HashMap<>(lazyLocations);
+        for (String name : compiled.keySet()) {
+            if (!locations.containsKey(name) && ShipwrecksMain.class.getResource(LAZY_STUB_PATH + name + ".json") != null)
+                locations.put(name, LootTableList.register(new ResourceLocation(ShipwrecksMain.MODID, LAZY_PREFIX + name)));
+        }
+
+        tables = Collections.unmodifiableMap(compiled);
+        lazyLocations = Collections.unmodifiableMap(locations);
+        loaded = true;
+    }
+
+    /*
+     * Get the compiled table for a loot pool, null if there is no such pool
+     */
+    static WreckLootTable getTable(String name) {
+        if (!loaded) {
+            synchronized (LootRegistry.class) {
+                if (!loaded)
+                    loadTables();
+            }
+        }
+        return tables.get(name);
+    }
+
+    /*
+     * Get the vanilla loot table name that fills a chest from this pool when it is first opened,
+     * null if the pool has to be filled straight away
+     */
+    static ResourceLocation getLazyLocation(String name) {
+        getTable(name);
+        return lazyLocations.get(name);
+    }
+
+    private static WreckLootTable readTable(String name, InputStream stream) throws IOException {
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            return WreckLootTable.compile(name, LootData.fromJson((JsonObject) new JsonParser().parse(reader)));
+        } catch (JsonIOException | JsonSyntaxException | IllegalArgumentException | IllegalStateException
+                | ClassCastException e) {
+            System.out.println("Unable to load loot table " + name + ": " + e.getMessage());
+            return null;
+        }
+    }
+}
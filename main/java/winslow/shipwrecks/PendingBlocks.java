@@ -0,0 +1,226 @@
+package winslow.shipwrecks;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldSavedData;
+import net.minecraftforge.common.util.Constants;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Per-world store of wreck blocks that fall in chunks that weren't loaded and populated when the wreck was placed.
+ * Writing them straight away would force those chunks to generate (cascading generation), or be decorated over
+ * when the chunk populates, so they are saved here and placed once their chunk is populated and loaded.
+ * Also holds the grid cells whose wreck couldn't start yet because the chunk its seafloor is read from wasn't ready.
+ */
+public class PendingBlocks extends WorldSavedData {
+    private static final String DATA_NAME = ShipwrecksMain.MODID + "_pending";
+
+    private final Map<Long, PendingChunk> chunks = new HashMap<>();
+    private final Map<Long, List<Long>> sites = new HashMap<>(); //site chunk -> ChunkPos.asLong of the grid cells
+
+    public PendingBlocks(String name) {
+        super(name);
+    }
+
+    /*
+     * Get the pending block store for a world, creating it if this is the first wreck
+     */
+    static PendingBlocks get(World world) {
+        MapStorage storage = world.getPerWorldStorage();
+        PendingBlocks data = (PendingBlocks) storage.getOrLoadData(PendingBlocks.class, DATA_NAME);
+        if (data == null) {
+            data = new PendingBlocks(DATA_NAME);
+            storage.setData(DATA_NAME, data);
+        }
+        return data;
+    }
+
+    /*
+     * Blocks waiting on a single chunk. Positions are packed as local x | local z << 4 | y << 8.
+     */
+    static final class PendingChunk {
+        private final List<Integer> positions = new ArrayList<>();
+        private final List<IBlockState> states = new ArrayList<>();
+        private final List<String> loot = new ArrayList<>();
+        private final List<Long> lootSeeds = new ArrayList<>();
+
+        int size() {
+            return positions.size();
+        }
+
+        BlockPos getPos(int chunkX, int chunkZ, int index) {
+            int packed = positions.get(index);
+            return new BlockPos((chunkX << 4) | (packed & 15), packed >>> 8, (chunkZ << 4) | ((packed >> 4) & 15));
+        }
+
+        IBlockState getState(int index) {
+            return states.get(index);
+        }
+
+        String getLoot(int index) {
+            return loot.get(index);
+        }
+
+        long getLootSeed(int index) {
+            return lootSeeds.get(index);
+        }
+
+        private void add(BlockPos pos, IBlockState state, String lootPool, long seed) {
+            positions.add((pos.getX() & 15) | ((pos.getZ() & 15) << 4) | (pos.getY() << 8));
+            states.add(state);
+            loot.add(lootPool);
+            lootSeeds.add(seed);
+        }
+    }
+
+    /*
+     * Queue a block to be placed when its chunk is populated and loaded. lootPool is null for blocks without loot.
+     */
+    void add(BlockPos pos, IBlockState state, String lootPool, long seed) {
+        long key = ChunkPos.asLong(pos.getX() >> 4, pos.getZ() >> 4);
+        PendingChunk chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = new PendingChunk();
+            chunks.put(key, chunk);
+        }
+        chunk.add(pos, state, lootPool, seed);
+        markDirty();
+    }
+
+    /*
+     * Start a cell's wreck once the chunk its site is in is populated and loaded. Only the cell is saved, the site
+     * comes from the world seed and the cell again when it starts.
+     */
+    void addSite(WreckLocator.WreckSite site) {
+        long key = ChunkPos.asLong(site.pos.getX() >> 4, site.pos.getZ() >> 4);
+        List<Long> cells = sites.get(key);
+        if (cells == null) {
+            cells = new ArrayList<>(1);
+            sites.put(key, cells);
+        }
+        long cell = ChunkPos.asLong(site.cellX, site.cellZ);
+        if (!cells.contains(cell))
+            cells.add(cell);
+        markDirty();
+    }
+
+    boolean hasPending(int chunkX, int chunkZ) {
+        long key = ChunkPos.asLong(chunkX, chunkZ);
+        return chunks.containsKey(key) || sites.containsKey(key);
+    }
+
+    /*
+     * Remove and return everything waiting on a chunk, null if there is nothing
+     */
+    PendingChunk take(int chunkX, int chunkZ) {
+        PendingChunk chunk = chunks.remove(ChunkPos.asLong(chunkX, chunkZ));
+        if (chunk != null)
+            markDirty();
+        return chunk;
+    }
+
+    /*
+     * Remove and return the cells whose wreck waits on a chunk (ChunkPos.asLong of each cell), null if there are none
+     */
+    List<Long> takeSites(int chunkX, int chunkZ) {
+        List<Long> cells = sites.remove(ChunkPos.asLong(chunkX, chunkZ));
+        if (cells != null)
+            markDirty();
+        return cells;
+    }
+
+    @Override
+    public void readFromNBT(NBTTagCompound nbt) {
+        chunks.clear();
+        NBTTagList list = nbt.getTagList("chunks", Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < list.tagCount(); ++i) {
+            NBTTagCompound tag = list.getCompoundTagAt(i);
+            int[] positions = tag.getIntArray("positions");
+            int[] states = tag.getIntArray("states");
+            NBTTagCompound loot = tag.getCompoundTag("loot");
+            NBTTagCompound seeds = tag.getCompoundTag("seeds");
+
+            PendingChunk chunk = new PendingChunk();
+            for (int j = 0; j < positions.length && j < states.length; ++j) {
+                chunk.positions.add(positions[j]);
+                chunk.states.add(Block.getStateById(states[j]));
+                String key = Integer.toString(j);
+                chunk.loot.add(loot.hasKey(key) ? loot.getString(key) : null);
+                chunk.lootSeeds.add(seeds.getLong(key));
+            }
+            chunks.put(ChunkPos.asLong(tag.getInteger("x"), tag.getInteger("z")), chunk);
+        }
+
+        sites.clear();
+        list = nbt.getTagList("sites", Constants.NBT.TAG_COMPOUND);
+        for (int i = 0; i < list.tagCount(); ++i) {
+            NBTTagCompound tag = list.getCompoundTagAt(i);
+            List<Long> cells = new ArrayList<>();
+            int[] cellXs = tag.getIntArray("cellXs");
+            int[] cellZs = tag.getIntArray("cellZs");
+            for (int j = 0; j < cellXs.length && j < cellZs.length; ++j)
+                cells.add(ChunkPos.asLong(cellXs[j], cellZs[j]));
+            sites.put(ChunkPos.asLong(tag.getInteger("x"), tag.getInteger("z")), cells);
+        }
+    }
+
+    @Override
+    public NBTTagCompound writeToNBT(NBTTagCompound nbt) {
+        NBTTagList list = new NBTTagList();
+        for (Map.Entry<Long, PendingChunk> entry : chunks.entrySet()) {
+            PendingChunk chunk = entry.getValue();
+            int[] positions = new int[chunk.size()];
+            int[] states = new int[chunk.size()];
+            NBTTagCompound loot = new NBTTagCompound();
+            NBTTagCompound seeds = new NBTTagCompound();
+            for (int i = 0; i < chunk.size(); ++i) {
+                positions[i] = chunk.positions.get(i);
+                states[i] = Block.getStateId(chunk.states.get(i));
+                if (chunk.loot.get(i) != null) {
+                    loot.setString(Integer.toString(i), chunk.loot.get(i));
+                    seeds.setLong(Integer.toString(i), chunk.lootSeeds.get(i));
+                }
+            }
+
+            NBTTagCompound tag = new NBTTagCompound();
+            tag.setInteger("x", (int) (entry.getKey() & 0xFFFFFFFFL));
+            tag.setInteger("z", (int) (entry.getKey() >>> 32));
+            tag.setIntArray("positions", positions);
+            tag.setIntArray("states", states);
+            tag.setTag("loot", loot);
+            tag.setTag("seeds", seeds);
+            list.appendTag(tag);
+        }
+        nbt.setTag("chunks", list);
+
+        list = new NBTTagList();
+        for (Map.Entry<Long, List<Long>> entry : sites.entrySet()) {
+            int[] cellXs = new int[entry.getValue().size()];
+            int[] cellZs = new int[cellXs.length];
+            for (int i = 0; i < cellXs.length; ++i) {
+                long cell = entry.getValue().get(i);
+                cellXs[i] = (int) (cell & 0xFFFFFFFFL);
+                cellZs[i] = (int) (cell >>> 32);
+            }
+
+            NBTTagCompound tag = new NBTTagCompound();
+            tag.setInteger("x", (int) (entry.getKey() & 0xFFFFFFFFL));
+            tag.setInteger("z", (int) (entry.getKey() >>> 32));
+            tag.setIntArray("cellXs", cellXs);
+            tag.setIntArray("cellZs", cellZs);
+            list.appendTag(tag);
+        }
+        nbt.setTag("sites", list);
+        return nbt;
+    }
+}
@@ -0,0 +1,46 @@
+package winslow.shipwrecks;
+
+import net.minecraft.block.Block;
+import net.minecraft.init.Blocks;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+/*
+ * Finds the seafloor (the highest non-water/non-air block at or below sea level) for a block column. The walk
+ * starts from the chunk heightmap instead of sea level, skips empty sections and reads the section storage directly.
+ */
+final class Seafloor {
+    private Seafloor() {
+    }
+
+    /*
+     * Get the seafloor for a position in a loaded chunk, keeping its x and z
+     */
+    static BlockPos getFloor(Chunk chunk, BlockPos pos, int seaLevel) {
+        return new BlockPos(pos.getX(), getHeight(chunk, pos.getX() & 15, pos.getZ() & 15, seaLevel), pos.getZ());
+    }
+
+    /*
+     * Walk down one column of a chunk from the lower of sea level and the heightmap, x and z within the chunk
+     */
+    static int getHeight(Chunk chunk, int x, int z, int seaLevel) {
+        ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+        //everything above the heightmap lets light straight through, so it's air (or close enough to it)
+        int y = Math.min(seaLevel, chunk.getHeightValue(x, z) - 1);
+
+        while (y > 0) {
+            ExtendedBlockStorage section = storage[y >> 4];
+            if (section == Chunk.NULL_BLOCK_STORAGE) { //empty section, all air
+                y = (y & ~15) - 1;
+                continue;
+            }
+
+            Block block = section.get(x, y & 15, z).getBlock();
+            if (block != Blocks.WATER && block != Blocks.AIR)
+                break;
+            --y;
+        }
+        return Math.max(y, 0);
+    }
+}
@@ -0,0 +1,213 @@
+package winslow.shipwrecks;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.network.play.server.SPacketChunkData;
+import net.minecraft.server.management.PlayerChunkMapEntry;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.storage.ExtendedBlockStorage;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Collects the blocks for a wreck grouped by chunk section and writes them straight into the chunk storage in
+ * one pass. Unlike World.setBlockState this skips neighbour notifications, per-block client updates and per-block
+ * lighting: tile entities are created in a batch afterwards, each touched chunk has its height and sky light map
+ * rebuilt once, and watching players are sent each touched chunk once.
+ */
+class SectionWriter {
+    private final World world;
+    private final Map<Long, ChunkBatch> chunks = new HashMap<>();
+
+    SectionWriter(World world) {
+        this.world = world;
+    }
+
+    /*
+     * Blocks waiting to be written to one chunk, stored per 16x16x16 section in the same x | z << 4 | y << 8
+     * order chunk storage uses
+     */
+    private static final class ChunkBatch {
+        private final int chunkX;
+        private final int chunkZ;
+        private final IBlockState[][] sections = new IBlockState[16][];
+        private final Map<BlockPos, ChestLoot> loot = new HashMap<>();
+
+        private ChunkBatch(int chunkX, int chunkZ) {
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+    }
+
+    /*
+     * The loot pool and seed for a chest
+     */
+    private static final class ChestLoot {
+        private final String pool;
+        private final long seed;
+
+        private ChestLoot(String pool, long seed) {
+            this.pool = pool;
+            this.seed = seed;
+        }
+    }
+
+    private static int sectionIndex(BlockPos pos) {
+        return (pos.getX() & 15) | ((pos.getZ() & 15) << 4) | ((pos.getY() & 15) << 8);
+    }
+
+    private ChunkBatch getBatch(BlockPos pos) {
+        int chunkX = pos.getX() >> 4;
+        int chunkZ = pos.getZ() >> 4;
+        long key = ChunkPos.asLong(chunkX, chunkZ);
+        ChunkBatch batch = chunks.get(key);
+        if (batch == null) {
+            batch = new ChunkBatch(chunkX, chunkZ);
+            chunks.put(key, batch);
+        }
+        return batch;
+    }
+
+    /*
+     * Queue a block. Later writes to the same position replace earlier ones.
+     */
+    void setBlock(BlockPos pos, IBlockState state) {
+        if (pos.getY() < 0 || pos.getY() > 255)
+            return;
+
+        ChunkBatch batch = getBatch(pos);
+        IBlockState[] section = batch.sections[pos.getY() >> 4];
+        if (section == null) {
+            section = new IBlockState[4096];
+            batch.sections[pos.getY() >> 4] = section;
+        }
+        section[sectionIndex(pos)] = state;
+    }
+
+    /*
+     * Fill the chest at a position from a loot pool once it is written. The chest's contents are rolled from the seed.
+     */
+    void setLoot(BlockPos pos, String lootPool, long seed) {
+        if (pos.getY() < 0 || pos.getY() > 255)
+            return;
+        getBatch(pos).loot.put(pos, new ChestLoot(lootPool, seed));
+    }
+
+    /*
+     * Write all queued blocks. Blocks in chunks that aren't loaded, or haven't populated yet and would be decorated
+     * over, go to the pending store instead.
+     */
+    void flush(ShipwreckLoot loot) {
+        for (ChunkBatch batch : chunks.values()) {
+            Chunk chunk = getPopulatedChunk(world, batch.chunkX, batch.chunkZ);
+            if (chunk != null)
+                writeChunk(chunk, batch, loot);
+            else
+                deferChunk(batch);
+        }
+        chunks.clear();
+    }
+
+    /*
+     * The chunk if it is loaded and populated, null otherwise. Never loads or generates it.
+     */
+    static Chunk getPopulatedChunk(World world, int chunkX, int chunkZ) {
+        Chunk chunk = world.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+        return chunk != null && chunk.isTerrainPopulated() ? chunk : null;
+    }
+
+    private void writeChunk(Chunk chunk, ChunkBatch batch, ShipwreckLoot loot) {
+        ExtendedBlockStorage[] storage = chunk.getBlockStorageArray();
+        List<BlockPos> tileEntities = new ArrayList<>();
+        int baseX = batch.chunkX << 4;
+        int baseZ = batch.chunkZ << 4;
+
+        for (int sectionY = 0; sectionY < batch.sections.length; ++sectionY) {
+            IBlockState[] states = batch.sections[sectionY];
+            if (states == null)
+                continue;
+
+            ExtendedBlockStorage section = storage[sectionY];
+            for (int i = 0; i < states.length; ++i) {
+                IBlockState state = states[i];
+                if (state == null)
+                    continue;
+
+                int x = i & 15;
+                int z = (i >> 4) & 15;
+                int y = i >> 8;
+
+                if (section == Chunk.NULL_BLOCK_STORAGE) {
+                    if (state.getBlock().isAir(state, world, new BlockPos(baseX + x, (sectionY << 4) + y, baseZ + z)))
+                        continue; //nothing to clear in an empty section
+                    section = new ExtendedBlockStorage(sectionY << 4, world.provider.hasSkyLight());
+                    storage[sectionY] = section;
+                }
+
+                IBlockState old = section.get(x, y, z);
+                if (old == state)
+                    continue;
+
+                BlockPos pos = new BlockPos(baseX + x, (sectionY << 4) + y, baseZ + z);
+                if (old.getBlock().hasTileEntity(old))
+                    world.removeTileEntity(pos);
+
+                section.set(x, y, z, state);
+
+                if (state.getBlock().hasTileEntity(state))
+                    tileEntities.add(pos);
+            }
+        }
+
+        //create tile entities once all blocks are in place, then fill any loot chests
+        for (BlockPos pos : tileEntities) {
+            IBlockState state = chunk.getBlockState(pos);
+            TileEntity tileEntity = state.getBlock().createTileEntity(world, state);
+            if (tileEntity != null)
+                world.setTileEntity(pos, tileEntity);
+        }
+        for (Map.Entry<BlockPos, ChestLoot> entry : batch.loot.entrySet())
+            loot.addChestLoot(world, entry.getKey(), entry.getValue().pool, entry.getValue().seed);
+
+        //rebuild the height map and sky light once for the whole chunk, block light is rechecked over the next ticks
+        chunk.generateSkylightMap();
+        chunk.resetRelightChecks();
+        chunk.markDirty();
+
+        if (world instanceof WorldServer) {
+            PlayerChunkMapEntry entry = ((WorldServer) world).getPlayerChunkMap().getEntry(batch.chunkX, batch.chunkZ);
+            if (entry != null && entry.isSentToPlayers())
+                entry.sendPacket(new SPacketChunkData(chunk, 65535));
+        }
+    }
+
+    private void deferChunk(ChunkBatch batch) {
+        PendingBlocks pending = PendingBlocks.get(world);
+        int baseX = batch.chunkX << 4;
+        int baseZ = batch.chunkZ << 4;
+
+        for (int sectionY = 0; sectionY < batch.sections.length; ++sectionY) {
+            IBlockState[] states = batch.sections[sectionY];
+            if (states == null)
+                continue;
+
+            for (int i = 0; i < states.length; ++i) {
+                if (states[i] == null)
+                    continue;
+                BlockPos pos = new BlockPos(baseX + (i & 15), (sectionY << 4) + (i >> 8), baseZ + ((i >> 4) & 15));
+                ChestLoot chest = batch.loot.get(pos);
+                if (chest != null)
+                    pending.add(pos, states[i], chest.pool, chest.seed);
+                else
+                    pending.add(pos, states[i], null, 0);
+            }
+        }
+    }
+}
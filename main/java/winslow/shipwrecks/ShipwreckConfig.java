@@ -3,114 +3,239 @@ package winslow.shipwrecks;
 import net.minecraftforge.common.config.Configuration;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
 
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
 class ShipwreckConfig {
-    private static String[] names;
-    private static int[] oceanWeights;
-    private static int[] beachWeights;
-    private static int minDist;
-    private static int maxDist;
-    private static boolean includeDivingArmor;
+    private static volatile Snapshot snapshot;
+    private static File configFile;
+
+    /*
+     * Every config value, read together. A reload builds a new snapshot and swaps it in, so code that reads
+     * several values should get the snapshot once instead of calling the static getters one at a time.
+     * Nothing in it can be changed after it is built.
+     */
+    static final class Snapshot {
+        final List<String> names;
+        private final int[] oceanWeights;
+        private final int[] beachWeights;
+        final AliasSampler oceanSampler;
+        final AliasSampler beachSampler;
+        final int minDist;
+        final int maxDist;
+        final boolean includeDivingArmor;
+        final boolean mirrorWrecks;
+        final int statsMinutes;
+        final int pregenMillis;
+        final int tickTargetMillis;
+        final int finishDistance;
+
+        private Snapshot(String[] names, int[] oceanWeights, int[] beachWeights, int minDist, int maxDist,
+                         boolean includeDivingArmor, boolean mirrorWrecks, int statsMinutes, int pregenMillis,
+                         int tickTargetMillis, int finishDistance) {
+            this.names = Collections.unmodifiableList(Arrays.asList(names.clone()));
+            this.oceanWeights = oceanWeights.clone();
+            this.beachWeights = beachWeights.clone();
+            this.oceanSampler = new AliasSampler(oceanWeights);
+            this.beachSampler = new AliasSampler(beachWeights);
+            this.minDist = minDist;
+            this.maxDist = maxDist;
+            this.includeDivingArmor = includeDivingArmor;
+            this.mirrorWrecks = mirrorWrecks;
+            this.statsMinutes = statsMinutes;
+            this.pregenMillis = pregenMillis;
+            this.tickTargetMillis = tickTargetMillis;
+            this.finishDistance = finishDistance;
+        }
+
+        /*
+         * Get the weight of the structure at index based on the biome, 0 past the end of the weight list
+         */
+        int getWeight(boolean isOceanBiome, int index) {
+            int[] weights = isOceanBiome ? oceanWeights : beachWeights;
+            return index < weights.length ? weights[index] : 0;
+        }
+
+        AliasSampler getSampler(boolean isOceanBiome) {
+            return isOceanBiome ? oceanSampler : beachSampler;
+        }
+    }
+
+    /*
+     * Get the current config values
+     */
+    static Snapshot get() {
+        return snapshot;
+    }
+
+    /*
+     * The config file the server loaded, null before PreInit
+     */
+    static File getConfigFile() {
+        return configFile;
+    }
 
     /*
      * load the configuration and initialize values
      */
     static void initConfiguration(FMLPreInitializationEvent event) {
-        Configuration config = new Configuration(event.getSuggestedConfigurationFile());
+        configFile = event.getSuggestedConfigurationFile();
+        load(configFile).save();
+    }
+
+    /*
+     * read the values from a config file (defaults for anything missing) without writing it back,
+     * then swap them in as the current snapshot
+     */
+    static Configuration load(File file) {
+        return load(file, null);
+    }
+
+    /*
+     * Load a changed config while the server runs (see StructureWatcher). maxDist and minDist lay out the wreck grid
+     * that every wreck's place and seed come from, so they keep their current values until the server restarts.
+     */
+    static void reload(File file) {
+        load(file, snapshot);
+    }
+
+    private static Configuration load(File file, Snapshot current) {
+        Configuration config = new Configuration(file);
         config.load();
 
         config.get("Distance", "A: Instructions", "This section controls the distance between shipwrecks. I recommend keeping the max distance relatively low as you will have wrecks noticeably pop-in otherwise when they spawn (e.g. if you set it to 100 chunks, you could see a wreck pop in 100 chunks behind you). I also recommend you keep minDist above 3 to prevent ships from spawning on each other.");
-        setMaxDist(config.get("Distance", "maxDist", 10, "maxDist = the maximum number of chunks between wrecks (with 100% spawn rates of wrecks, actually works out to be [maxDist * 2 - minDist] as the actual maximum distance between wrecks)").getInt());
-        setMinDist(config.get("Distance", "minDist", 4, "minDist = the minimum chunks between wrecks, wrecks will not be closer than this.").getInt());
+        int maxDist = config.get("Distance", "maxDist", 10, "maxDist = the maximum number of chunks between wrecks (with 100% spawn rates of wrecks, actually works out to be [maxDist * 2 - minDist] as the actual maximum distance between wrecks)").getInt();
+        int minDist = config.get("Distance", "minDist", 4, "minDist = the minimum chunks between wrecks, wrecks will not be closer than this.").getInt();
 
         String[] defaultStructures = {"rowboat", "sailboatup", "sailboatside", "sloop", "schooner", "waverunner"};
         config.get("Structures", "A: Instructions", "This is a list of the structures that will be used in generation. These MUST match the name of the JSON filename for the structure (without the .json extension).");
-        setNames(config.get("Structures", "Names", defaultStructures).getStringList());
+        String[] names = config.get("Structures", "Names", defaultStructures).getStringList();
         int[] defaultOceanWeights = {30, 20, 15, 5, 3, 1};
         config.get("Weights", "A: Instructions", "These values determine the chance the above structures have of spawning. The values correspond to the stucture names listed above IN ORDER. So, by default, the second number in the list is the weight for the rowboat (the first name in the list). Set the value to 0 to prevent it from being counted/generating.");
-        setOceanWeights(config.get("Weights", "Ocean Generation Weights", defaultOceanWeights).getIntList());
+        int[] oceanWeights = config.get("Weights", "Ocean Generation Weights", defaultOceanWeights).getIntList();
         int[] defaultBeachWeights = {30, 20, 15, 5, 3, 1};
-        setBeachWeights(config.get("Weights", "Beach Generation Weights", defaultBeachWeights).getIntList());
+        int[] beachWeights = config.get("Weights", "Beach Generation Weights", defaultBeachWeights).getIntList();
+        checkWeights(oceanWeights, "Ocean Generation Weights");
+        checkWeights(beachWeights, "Beach Generation Weights");
+
+        boolean mirrorWrecks = config.get("Structures", "Mirror Wrecks", true, "Allow wrecks to generate mirrored as well as rotated, doubling the number of layouts for each structure.").getBoolean(true);
+
+        boolean includeDivingArmor = config.get("Items", "Include Diving Armor", true).getBoolean(false);
 
-        setIncludeDivingArmor(config.get("Items", "Include Diving Armor", true).getBoolean(false));
+        int statsMinutes = config.get("Stats", "Dump Minutes", 10, "Minutes between writes of the generation stats (see /shipwrecks stats) to shipwrecks_winslow_stats.txt in the server folder. 0 turns it off.", 0, 1440).getInt();
+        int pregenMillis = config.get("Pregen", "Tick Millis", 10, "Milliseconds of each server tick /shipwrecks pregen may spend placing wrecks and generating the chunks under them. Planning runs on the planner threads and doesn't count.", 1, 50).getInt();
+        int tickTargetMillis = config.get("Placement", "Tick Target Millis", 45, "Wreck blocks are placed a chunk section at a time at the end of each server tick until the tick has taken this long. At least one section goes in every tick.", 10, 50).getInt();
+        int finishDistance = config.get("Placement", "Finish Distance", 48, "A wreck still being placed is finished at once when a player comes within this many blocks of it.", 0, 256).getInt();
 
-        config.save();
+        if (current != null && (maxDist != current.maxDist || minDist != current.minDist)) {
+            System.out.println("Shipwrecks maxDist and minDist can't change while the server is running, keeping "
+                    + current.maxDist + " and " + current.minDist + " until it restarts");
+            maxDist = current.maxDist;
+            minDist = current.minDist;
+        }
+
+        snapshot = new Snapshot(names, oceanWeights, beachWeights, minDist, maxDist, includeDivingArmor, mirrorWrecks, statsMinutes, pregenMillis,
+                tickTargetMillis, finishDistance);
+
+        return config;
     }
 
     /*
-     * Getter for names, an array of structure names
+     * A negative weight can't be sampled, count it as 0
      */
-    static String[] getNames() {
-        return names;
+    private static void checkWeights(int[] weights, String name) {
+        for (int i = 0; i < weights.length; ++i) {
+            if (weights[i] < 0) {
+                System.out.println("Shipwrecks " + name + " has a negative weight (" + weights[i] + "), using 0");
+                weights[i] = 0;
+            }
+        }
     }
 
     /*
-     * Setter for names, an array of structure names
+     * Getter for names, an array of structure names
      */
-    private static void setNames(String[] names) {
-        ShipwreckConfig.names = names;
+    static String[] getNames() {
+        return snapshot.names.toArray(new String[0]);
     }
 
     /*
      * Getter for ocean weights, an int array of weights for spawning structures in ocean biomes
      */
     static int[] getOceanWeights() {
-        return oceanWeights;
+        return snapshot.oceanWeights.clone();
     }
 
     /*
-     * Setter for ocean weights, an int array of weights for spawning structures in ocean biomes
+     * Getter for the ocean sampler, picks a structure index using the ocean weights
      */
-    private static void setOceanWeights(int[] weights) {
-        ShipwreckConfig.oceanWeights = weights;
+    static AliasSampler getOceanSampler() {
+        return snapshot.oceanSampler;
     }
 
     /*
      * Getter for beach weights, an int array of weights for spawning structures in beach biomes
      */
     static int[] getBeachWeights() {
-        return beachWeights;
+        return snapshot.beachWeights.clone();
     }
 
     /*
-     * Setter for ocean weights, an int array of weights for spawning structures in ocean biomes
+     * Getter for the beach sampler, picks a structure index using the beach weights
      */
-    private static void setBeachWeights(int[] weights) {
-        ShipwreckConfig.beachWeights = weights;
+    static AliasSampler getBeachSampler() {
+        return snapshot.beachSampler;
     }
 
     static int getMinDist() {
-        return minDist;
+        return snapshot.minDist;
+    }
+
+    static int getMaxDist() {
+        return snapshot.maxDist;
     }
 
     /*
-     * Setter for ocean weights, an int array of weights for spawning structures in ocean biomes
+     * Getter for include diving armor, true if diving armor is added
      */
-    private static void setMinDist(int minDist) {
-        ShipwreckConfig.minDist = minDist;
+    static boolean getIncludeDivingArmor() {
+        return snapshot.includeDivingArmor;
     }
 
-    static int getMaxDist() {
-        return maxDist;
+    /*
+     * Getter for mirror wrecks, true if structures can generate mirrored
+     */
+    static boolean getMirrorWrecks() {
+        return snapshot.mirrorWrecks;
     }
 
     /*
-     * Setter for max dist, the maximum distance between shipwrecks
+     * Getter for stats minutes, minutes between stats dumps or 0 for none
      */
-    private static void setMaxDist(int maxDist) {
-        ShipwreckConfig.maxDist = maxDist;
+    static int getStatsMinutes() {
+        return snapshot.statsMinutes;
     }
 
     /*
-     * Getter for names, an array of structure names
+     * Getter for pregen millis, the time budget per tick for /shipwrecks pregen
      */
-    static boolean getIncludeDivingArmor() {
-        return includeDivingArmor;
+    static int getPregenMillis() {
+        return snapshot.pregenMillis;
+    }
+
+    /*
+     * Getter for tick target millis, how long a tick may run before WreckScheduler stops placing blocks
+     */
+    static int getTickTargetMillis() {
+        return snapshot.tickTargetMillis;
     }
 
     /*
-     * Setter for names, an array of structure names
+     * Getter for finish distance, how close a player gets before a wreck is placed in full
      */
-    private static void setIncludeDivingArmor(Boolean include) {
-        ShipwreckConfig.includeDivingArmor = include;
+    static int getFinishDistance() {
+        return snapshot.finishDistance;
     }
 }
@@ -0,0 +1,76 @@
+package winslow.shipwrecks;
+
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraftforge.event.LootTableLoadEvent;
+import net.minecraftforge.event.world.ChunkEvent;
+import net.minecraftforge.event.world.WorldEvent;
+import net.minecraftforge.fml.common.Mod;
+import net.minecraftforge.fml.common.eventhandler.SubscribeEvent;
+import net.minecraftforge.fml.common.gameevent.TickEvent;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/*
+ * Server events used by wreck generation
+ */
+@Mod.EventBusSubscriber(modid = ShipwrecksMain.MODID)
+public class ShipwreckEvents {
+    //populated chunks with pending wreck blocks that loaded since the last tick. Blocks can't be placed during the
+    //load itself. Chunks that haven't populated get theirs from the population step instead (see ShipwreckGen).
+    private static final Queue<World> loadedWorlds = new ArrayDeque<>();
+    private static final Queue<ChunkPos> loadedChunks = new ArrayDeque<>();
+
+    @SubscribeEvent
+    public static void onChunkLoad(ChunkEvent.Load event) {
+        World world = event.getWorld();
+        if (world.isRemote || world.provider.getDimension() != 0)
+            return;
+
+        ChunkPos pos = event.getChunk().getPos();
+        if (event.getChunk().isTerrainPopulated() && PendingBlocks.get(world).hasPending(pos.x, pos.z)) {
+            loadedWorlds.add(world);
+            loadedChunks.add(pos);
+        }
+    }
+
+    @SubscribeEvent
+    public static void onWorldUnload(WorldEvent.Unload event) {
+        if (!event.getWorld().isRemote) {
+            WreckScheduler.unload(event.getWorld());
+            WreckFootprints.unload(event.getWorld());
+        }
+    }
+
+    /*
+     * Wreck chests are given our own loot table names, swap the stub file for a table that rolls the wreck loot pool
+     */
+    @SubscribeEvent
+    public static void onLootTableLoad(LootTableLoadEvent event) {
+        String domain = event.getName().getResourceDomain();
+        String path = event.getName().getResourcePath();
+        if (domain.equals(ShipwrecksMain.MODID) && path.startsWith(LootRegistry.LAZY_PREFIX))
+            event.setTable(new LazyLootTable(path.substring(LootRegistry.LAZY_PREFIX.length())));
+    }
+
+    @SubscribeEvent
+    public static void onServerTick(TickEvent.ServerTickEvent event) {
+        if (event.phase == TickEvent.Phase.START) {
+            WreckScheduler.startTick();
+            return;
+        }
+
+        while (!loadedChunks.isEmpty()) {
+            World world = loadedWorlds.poll();
+            ChunkPos pos = loadedChunks.poll();
+            ShipwrecksMain.getGenerator().applyPending(world, pos.x, pos.z);
+        }
+
+        //queue wrecks the planner threads have finished and place what fits in this tick
+        WreckScheduler.addFinished();
+        WreckScheduler.run();
+
+        WreckPregen.tick();
+    }
+}
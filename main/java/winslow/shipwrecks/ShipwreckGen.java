@@ -1,33 +1,14 @@
 package winslow.shipwrecks;
 
-import com.google.common.base.Charsets;
-import com.google.common.io.Resources;
-import com.google.gson.*;
-import net.minecraft.block.Block;
-import net.minecraft.block.BlockBed.EnumPartType;
-import net.minecraft.block.BlockDoor;
-import net.minecraft.block.BlockLog.EnumAxis;
-import net.minecraft.block.BlockPlanks.EnumType;
-import net.minecraft.block.BlockSlab.EnumBlockHalf;
-import net.minecraft.block.BlockStairs;
-import net.minecraft.block.properties.IProperty;
-import net.minecraft.block.properties.PropertyDirection;
-import net.minecraft.block.properties.PropertyEnum;
-import net.minecraft.block.state.IBlockState;
-import net.minecraft.client.Minecraft;
-import net.minecraft.init.Blocks;
-import net.minecraft.util.EnumFacing;
 import net.minecraft.util.math.BlockPos;
 import net.minecraft.world.World;
-import net.minecraft.world.biome.Biome;
+import net.minecraft.world.chunk.Chunk;
 import net.minecraft.world.chunk.IChunkGenerator;
 import net.minecraft.world.chunk.IChunkProvider;
 import net.minecraftforge.fml.common.IWorldGenerator;
 
-import java.io.File;
-import java.io.IOException;
-import java.net.URL;
-import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
 import java.util.Random;
 
 public class ShipwreckGen implements IWorldGenerator {
@@ -40,383 +21,176 @@ public class ShipwreckGen implements IWorldGenerator {
 
         switch (world.provider.getDimension()) {
             case 0:
-                generateSurface(world, chunkX * 16 + 8, chunkZ * 16 + 8); //Overworld Generation
-        }
-    }
-
-    /*
-     * Generate structures on the surface
-     */
-    private void generateSurface(World world, int chunkX, int chunkZ) {
-        //Get the highest non-air block
-        BlockPos pos = new BlockPos(chunkX, 0, chunkZ);//getWorldHeight(world, chunkX, chunkZ);
-
-        int max = ShipwreckConfig.getMaxDist();
-        if (canSpawnHere(pos, max)) {
-            Random random = new Random();
-
-            Biome bio = world.getBiome(pos);
-            String biomeName = bio.getBiomeName().toLowerCase();
-
-            //Random offset from chunk between min and max from center of chunk
-            int min = ShipwreckConfig.getMinDist();
+                //the chunk is flagged populated before the generators run, place what was waiting on it
+                applyPending(world, chunkX, chunkZ);
 
-            double maxOffset = ((double) max - (double) min) / 2.0;
-            int newX = (int) ((random.nextDouble() * maxOffset - 2 * random.nextDouble() * maxOffset) * 16);
-            int newZ = (int) ((random.nextDouble() * maxOffset - 2 * random.nextDouble() * maxOffset) * 16);
-            pos = pos.add(newX, world.getSeaLevel(), newZ);
-
-            pos = pos.add(0, findSeafloor(world, pos) - pos.getY(), 0);
-
-            if (biomeName.contains("ocean")) //check to generate ship in ocean
-                generateStructures(world, getStructureName(true, random), pos);
-            else if (biomeName.contains("beach")) //check to generate ship on beach
-                generateStructures(world, getStructureName(false, random), pos);
+                Object event = WreckEvents.begin(WreckEvents.Phase.SURFACE);
+                String structure = generateSurface(world, chunkX, chunkZ); //Overworld Generation
+                WreckEvents.commit(event, structure, -1, chunkX, chunkZ, 0);
         }
     }
 
     /*
-     * Calls a generate function for a random cardinal direction
+     * Place any wreck blocks that were saved for a chunk, and start any wreck whose site is in it, if the chunk is
+     * now populated and loaded
      */
-    private void generateStructures(World world, String structure, BlockPos pos) {
-        if (structure == null)
+    void applyPending(World world, int chunkX, int chunkZ) {
+        if (SectionWriter.getPopulatedChunk(world, chunkX, chunkZ) == null)
             return;
 
-        JsonParser parser = new JsonParser();
-
-        try {
-            //Read JSON string from structure file
-            URL path = ShipwrecksMain.class.getResource("/assets/" + ShipwrecksMain.MODID
-                    + "/structures/" + structure + ".json");
-            if (path == null) {
-                File structurePath;
-                try {
-                    structurePath = new File("./structures/" + structure + ".json");
-                    if(!structurePath.exists())
-                        return;
-                    path = structurePath.toURI().toURL();
-                } catch (Exception ex) {
-                    return;
-                }
-            }
-            String textFile = Resources.toString(path, Charsets.UTF_8);
-
-            JsonObject jsonObj = (JsonObject) parser.parse(textFile);
-
-            Random random = new Random();
-            int orientation = random.nextInt(4); //E, W, N, S orientation
-
-            // 1 in 6 chance of ship floating
-            if (jsonObj.getAsJsonPrimitive("can_float").getAsBoolean() && random.nextInt(6) == 0)
-                pos = pos.add(0, world.getSeaLevel() - pos.getY(), 0);
-
-            if (jsonObj.has("sections")) {
-                JsonArray sections = jsonObj.getAsJsonArray("sections"); //get sections (an array of objects containing block types and coordinates)
-
-                for (int i = 0; i < sections.size(); ++i) //loop through array and add each segment
-                    addBlocksJson(world, sections.get(i).getAsJsonObject(), pos, orientation);
-            }
-            if (jsonObj.has("random")) //structure pieces that can appear a random orientation and distance from the center of the structure
-            {
-                JsonArray sections = jsonObj.getAsJsonArray("random");
-
-                for (int i = 0; i < sections.size(); ++i) //loop through array and add each segment
-                {
-                    JsonObject data = sections.get(i).getAsJsonObject();
-
-                    if (data.has("range")) {
-                        JsonArray range = data.getAsJsonArray("range");
-
-                        int min = range.get(0).getAsInt();
-                        int max = range.get(1).getAsInt();
-
-                        int xOffset = min + random.nextInt(max - min);
-                        int zOffset = min + random.nextInt(max - min);
-
-                        //50% chance to be negative x or y from center of wreck
-                        if (random.nextInt(2) == 0)
-                            xOffset *= -1;
-                        if (random.nextInt(2) == 0)
-                            zOffset *= -1;
-
-                        //find new position to act as (0, 0, 0) for random object
-                        BlockPos newPos = new BlockPos(pos.getX() + xOffset, pos.getY(), pos.getZ() + zOffset);
-
-                        addBlocksJson(world, data, newPos, orientation);
-                    }
-                }
-            }
-            if (jsonObj.has("chance_sections")) //sections that have a given chance to spawn
-            {
-                JsonArray chance_sections = jsonObj.getAsJsonArray("chance_sections");
-                for (int i = 0; i < chance_sections.size(); ++i) {
-                    JsonObject data = chance_sections.get(i).getAsJsonObject();
-                    Boolean isExclusive = false;
-                    if (data.has("exclusive"))
-                        isExclusive = data.get("exclusive").getAsBoolean();
-
-                    if (!data.has("chance")) //these sections require a weight field
-                        return;
-                    JsonArray chance = data.getAsJsonArray("chance");
-                    JsonArray sections = data.getAsJsonArray("chance_blocks"); //get sections (an array of objects containing block types and coordinates)
-
-                    for (int j = 0; j < sections.size() && j < chance.size(); ++j) {
-                        if (random.nextInt(chance.get(j).getAsInt()) == 0) {
-                            JsonArray coords = sections.get(j).getAsJsonArray();
-                            for (int k = 0; k < coords.size(); ++k)
-                                addBlocksJson(world, coords.get(k).getAsJsonObject(), pos, orientation);
-
-                            if (isExclusive)
-                                break;
-                        }
-                    }
-                }
+        PendingBlocks store = PendingBlocks.get(world);
+        PendingBlocks.PendingChunk pending = store.take(chunkX, chunkZ);
+        if (pending != null) {
+            SectionWriter writer = new SectionWriter(world);
+            for (int i = 0; i < pending.size(); ++i) {
+                BlockPos pos = pending.getPos(chunkX, chunkZ, i);
+                writer.setBlock(pos, pending.getState(i));
+                if (pending.getLoot(i) != null)
+                    writer.setLoot(pos, pending.getLoot(i), pending.getLootSeed(i));
             }
-            if (jsonObj.has("damage_sections")) //create damage on ship. Replace removed blocks with block type 1 away from center and 1 Y coord up
-            {
-                JsonArray damageSections = jsonObj.getAsJsonArray("damage_sections");
-
-                for (int i = 0; i < damageSections.size(); ++i) {
-                    JsonObject piece = damageSections.get(i).getAsJsonObject();
-                    if (!piece.has("chance")) //these sections require a weight field
-                        return;
-                    JsonArray chance = piece.getAsJsonArray("chance");
-                    JsonArray sections = piece.getAsJsonArray("chance_blocks");
-
-                    for (int j = 0; j < chance.size() && j < sections.size(); ++j) {
-                        if (random.nextInt(chance.get(j).getAsInt()) == 0) {
-                            JsonObject data = sections.get(j).getAsJsonObject(); //get block coordinates
-                            JsonArray coordArray = data.getAsJsonArray("coords");
-
-                            for (int k = 0; k < coordArray.size(); ++k) {
-                                JsonArray coords = coordArray.get(k).getAsJsonArray();
-                                int index = 0;
-                                int x = coords.get(index).getAsInt();
-                                ++index;
-                                int y = coords.get(index).getAsInt() - 1;
-                                ++index;
-                                int z = coords.get(index).getAsInt();
-                                ++index;
-
-                                //convert coords to correct position based on orientation
-                                switch (orientation) {
-                                    case 1: //West
-                                        x = -x;
-                                        z = -z;
-                                        break;
-                                    case 2: //North
-                                        int tempN = x;
-                                        x = -z;
-                                        z = tempN;
-                                        break;
-                                    case 3: //South
-                                        int tempS = -x;
-                                        x = z;
-                                        z = tempS;
-                                        break;
-                                }
-
-                                //facing determines which side of the block to get the replacement block from
-                                BlockPos blkSource = pos.add(x, y, z);
-                                EnumFacing dir = getFacing(orientation, piece.get("facing").getAsString());
-                                blkSource = blkSource.offset(dir);
-                                blkSource = blkSource.up();
+            writer.flush(loot);
+        }
 
-                                world.setBlockState(pos.add(x, y, z), world.getBlockState(blkSource));
-                            }
-                        }
-                    }
-                }
+        List<Long> cells = store.takeSites(chunkX, chunkZ);
+        if (cells != null) {
+            ShipwreckConfig.Snapshot config = ShipwreckConfig.get();
+            for (long cell : cells) {
+                WreckLocator.WreckSite site = WreckLocator.getSite(world, config, (int) cell, (int) (cell >>> 32));
+                if (site != null)
+                    startWreck(world, config, site, WreckPlanner.getFinishedPlans());
             }
-        } catch (JsonIOException | JsonSyntaxException | IOException e) {
-            e.printStackTrace();
         }
     }
 
     /*
-     * Check if wreck can spawn here based on min and max distances set in config
+     * Generate structures on the surface, returns the structure handed to the planner or null if there is none
      */
-    private Boolean canSpawnHere(BlockPos pos, int maxDist) {
-        int xVal = (pos.getX() / 16) % maxDist;
-        int zVal = (pos.getZ() / 16) % maxDist;
-        //wrecks can spawn only on (maxDist, Y, maxDist) nodes) but get offset a random distance from there
-        return (xVal == 0 && zVal == 0);
+    private String generateSurface(World world, int chunkX, int chunkZ) {
+        ShipwreckConfig.Snapshot config = ShipwreckConfig.get();
+        if (!WreckLocator.isAnchorChunk(config, chunkX, chunkZ))
+            return null;
+
+        //where the wreck goes and what it is depend only on the world seed and the grid cell
+        int max = config.maxDist;
+        WreckLocator.WreckSite site = WreckLocator.getSite(world, config, Math.floorDiv(chunkX, max), Math.floorDiv(chunkZ, max));
+        if (site == null) {
+            WreckMetrics.increment(WreckMetrics.Counter.SITES_REJECTED, WreckMetrics.GLOBAL);
+            return null;
+        }
+        return startWreck(world, config, site, WreckPlanner.getFinishedPlans());
     }
 
     /*
-     * adds blocks to the world with positions read from passed JsonObject
+     * Find the seafloor for a site, fit a structure there and hand it to the planner, which adds the finished plan
+     * to the passed queue. Returns the structure, or null if the cell's wreck was already started, nothing fits or
+     * the site's chunk isn't populated and loaded yet, in which case the site is saved in PendingBlocks and started
+     * once it is.
      */
-    @SuppressWarnings("unchecked") //suppressed as cast exceptions will be caught and I haven't found a better solution for casting properties
-    private void addBlocksJson(World world, JsonObject jsonObj, BlockPos pos, int orientation) {
-        if (!jsonObj.has("block") || !jsonObj.has("coords")) //missing required field, don't know what block to add/where to put them
-            return;
-
-        //get block type to add
-        String blockType = jsonObj.get("block").getAsString();
-        Block block = Block.getBlockFromName(blockType);
-
-        if (block == null) //blockType incorrect, unknown block to add.
-            return;
-
-        IBlockState blkState = block.getDefaultState();
-        Collection<IProperty<?>> propertyKeys = block.getDefaultState().getPropertyKeys();
-        String value;
-
-        //iterate over the block's properties and add any values that appear in the json.
-        try {
-            for (IProperty<?> property : propertyKeys) {
-                if (property.getName().equals("facing") && jsonObj.has("facing")) {
-                    value = jsonObj.get("facing").getAsString();
-                    blkState = blkState.withProperty((PropertyDirection) property, getFacing(orientation, value));
-                } else if (property.getName().equals("axis") && jsonObj.has("axis")) {
-                    value = jsonObj.get("axis").getAsString();
-                    blkState = blkState.withProperty((PropertyEnum) property, getAxis(orientation, value));
-                } else if (property.getName().equals("variant") && jsonObj.has("variant")) {
-                    value = jsonObj.get("variant").getAsString();
-                    blkState = blkState.withProperty((PropertyEnum) property, EnumType.valueOf(value));
-                } else if (property.getName().equals("half") && jsonObj.has("half")) {
-                    value = jsonObj.get("half").getAsString();
-                    if (block.getUnlocalizedName().contains("door"))
-                        blkState = blkState.withProperty((PropertyEnum) property, BlockDoor.EnumDoorHalf.valueOf(value));
-                    else if (block.getUnlocalizedName().contains("stair"))
-                        blkState = blkState.withProperty((PropertyEnum) property, BlockStairs.EnumHalf.valueOf(value));
-                    else
-                        blkState = blkState.withProperty((PropertyEnum) property, EnumBlockHalf.valueOf(value));
-                } else if (property.getName().equals("part") && jsonObj.has("part")) {
-                    value = jsonObj.get("part").getAsString();
-                    blkState = blkState.withProperty((PropertyEnum) property, EnumPartType.valueOf(value));
-                }
-            }
-        }
-        catch (ClassCastException e) {
-            System.out.println(e.getMessage());
+    String startWreck(World world, ShipwreckConfig.Snapshot config, WreckLocator.WreckSite site, Queue<WreckPlan> finished) {
+        //pregen places wrecks before their anchor chunk exists, don't generate the cell a second time when it populates
+        WreckFootprints footprints = WreckFootprints.get(world);
+        int x = site.pos.getX();
+        int z = site.pos.getZ();
+        if (footprints.isPlanned(site.pos) || !WreckIndex.get(world).getWrecksInRange(x, z, x, z).isEmpty())
+            return null;
+
+        //the seafloor is read from the site's chunk, wait for it to populate rather than generating it from here
+        Chunk chunk = SectionWriter.getPopulatedChunk(world, x >> 4, z >> 4);
+        if (chunk == null) {
+            PendingBlocks.get(world).addSite(site);
+            WreckMetrics.increment(WreckMetrics.Counter.DEFERRED_SITES, site.structure);
+            return null;
         }
 
-        JsonArray coords = jsonObj.getAsJsonArray("coords"); //array of block positions. "coords" existence checked at beginning of function
-
-        for (int i = 0; i < coords.size(); ++i) {
-            JsonArray posArray = coords.get(i).getAsJsonArray(); //get first set of coords
-
-            int index = 0;
-            int x = posArray.get(index).getAsInt();
-            ++index;
-            int y = posArray.get(index).getAsInt() - 1;
-            ++index;
-            int z = posArray.get(index).getAsInt();
-            ++index;
-
-            //convert coords to correct position based on orientation
-            switch (orientation) {
-                case 1: //West
-                    x = -x;
-                    z = -z;
-                    break;
-                case 2: //North
-                    int tempN = x;
-                    x = -z;
-                    z = tempN;
-                    break;
-                case 3: //South
-                    int tempS = -x;
-                    x = z;
-                    z = tempS;
-                    break;
-            }
-
-            world.setBlockState(pos.add(x, y, z), blkState);
-
-            if (jsonObj.has("loot")) //process blocks with inventory differently (e.g. chests have loot tiers)
-            {
-                String lootPool = jsonObj.get("loot").getAsString();
-                loot.addChestLoot(world, pos.add(x, y, z), lootPool);
-            }
+        //Get the highest non-water block
+        long start = WreckMetrics.start();
+        Object event = WreckEvents.begin(WreckEvents.Phase.SEAFLOOR);
+        BlockPos pos = Seafloor.getFloor(chunk, site.pos, world.getSeaLevel());
+        WreckEvents.commit(event, site.structure, -1, x >> 4, z >> 4, 1);
+        WreckMetrics.record(WreckMetrics.Timer.SEAFLOOR, site.structure, start);
+
+        //don't land on a wreck that is already there or on its way
+        StructureTemplate template = getFittingStructure(config, footprints, site, pos);
+        if (template == null) {
+            WreckMetrics.increment(WreckMetrics.Counter.OVERLAPS_REJECTED, site.structure);
+            return null;
         }
+        if (!template.name.equals(site.structure))
+            WreckMetrics.increment(WreckMetrics.Counter.DOWNSIZED, site.structure);
+        footprints.reserve(pos, WreckFootprints.getFootprint(pos, template.radius));
+
+        //the rest of the wreck is planned off the server thread
+        WreckPlanner.submit(config, world.provider.getDimension(), template.name, pos, world.getSeaLevel(), site.planSeed, finished);
+        return template.name;
     }
 
     /*
-     * Get the facing direction and rotate the face of the object from the default East facing to the
-     * correct facing for W, N, or S facing structures
+     * The site's structure if its hull doesn't overlap another wreck, otherwise the largest smaller structure that
+     * can spawn in the same biome and does fit. Null if nothing fits. Returns the template it checked, so a reload
+     * removing the structure in the meantime can't matter.
      */
-    private EnumFacing getFacing(int orientation, String facing) {
-
-        EnumFacing dir = EnumFacing.byName(facing);//EnumFacing.EAST;
-
-        if (dir != null) {
-            switch (orientation) {
-                case 1:    //West
-                    dir = dir.rotateY();
-                    dir = dir.rotateY();
-                    break;
-                case 2:    //North
-                    dir = dir.rotateY();
-                    break;
-                case 3:    //South
-                    dir = dir.rotateYCCW();
-                    break;
-            }
+    static StructureTemplate getFittingStructure(ShipwreckConfig.Snapshot config, WreckFootprints footprints, WreckLocator.WreckSite site, BlockPos pos) {
+        StructureTemplate template = StructureRegistry.getTemplate(site.structure);
+        if (template == null)
+            return null;
+        if (!footprints.intersects(WreckFootprints.getFootprint(pos, template.radius)))
+            return template;
+
+        boolean isOcean = site.category == WreckBiomes.Category.OCEAN;
+        StructureTemplate best = null;
+        for (int i = 0; i < config.names.size(); ++i) {
+            if (config.getWeight(isOcean, i) <= 0)
+                continue;
+            StructureTemplate other = StructureRegistry.getTemplate(config.names.get(i));
+            if (other == null || other.radius >= template.radius || (best != null && other.radius <= best.radius))
+                continue;
+            if (!footprints.intersects(WreckFootprints.getFootprint(pos, other.radius)))
+                best = other;
         }
-        return dir;
+        return best;
     }
 
     /*
-     * Get the axis direction and rotate the object from the default East facing to the
-     * correct facing for W, N, or S facing structures
+     * Copy a finished plan into the world. Must be called on the server thread.
      */
-    private EnumAxis getAxis(int orientation, String facing) {
-        EnumAxis axis = EnumAxis.valueOf(facing);//EnumAxis.Y;
-        if (axis == EnumAxis.Y)
-            return axis;
-
-        if (axis == EnumAxis.NONE)
-            return axis;
-
-        if (orientation == 2 || orientation == 3)
-            return (axis == EnumAxis.X) ? EnumAxis.Z : EnumAxis.X;
-
-        return axis;
+    void applyPlan(World world, WreckPlan plan) {
+        applySlices(world, plan, 0, plan.getSliceCount());
+        finishPlan(world, plan);
     }
 
     /*
-     * Finds the highest non-water/non-air block at the passed x and z coordinates
-     * Returns the y coordinate for the found height and x and z coords
+     * Copy the blocks and chests of slices from (inclusive) to to (exclusive) of a plan into the world, see
+     * WreckScheduler. Server thread only.
      */
-    private int findSeafloor(World world, BlockPos pos) {
-        //start at the highest block
-        while (world.getBlockState(pos).getBlock() == Blocks.WATER || world.getBlockState(pos).getBlock() == Blocks.AIR)
-            pos = pos.down();
+    void applySlices(World world, WreckPlan plan, int from, int to) {
+        long start = WreckMetrics.start();
+        Object event = WreckEvents.begin(WreckEvents.Phase.PLACEMENT);
+        SectionWriter writer = new SectionWriter(world);
+
+        int first = plan.sliceStarts[from];
+        int last = plan.sliceStarts[to];
+        for (int i = first; i < last; ++i)
+            writer.setBlock(BlockPos.fromLong(plan.positions[i]), plan.states[i]);
+
+        for (int i = 0; i < plan.chestPositions.length; ++i)
+            if (plan.chestSlices[i] >= from && plan.chestSlices[i] < to)
+                writer.setLoot(BlockPos.fromLong(plan.chestPositions[i]), plan.chestLoot[i], plan.chestSeeds[i]);
 
-        return pos.getY();
+        writer.flush(loot);
+
+        WreckEvents.commit(event, plan.structure, plan.variant, plan.origin.getX() >> 4, plan.origin.getZ() >> 4, last - first);
+        WreckMetrics.record(WreckMetrics.Timer.BLOCK_WRITE, plan.structure, start);
     }
 
     /*
-     * Get the correct name for the structure to generate based on the corresponding weight
-     *
-     * parameters: isOceanBiome, true = is an ocean biome, false = is not (it's a beach biome)
+     * Record a wreck whose blocks have all been placed
      */
-    private String getStructureName(Boolean isOceanBiome, Random random) {
-        int[] weights;
-        //get the correct weights for structures based on the biome
-        if (isOceanBiome)
-            weights = ShipwreckConfig.getOceanWeights();
-        else
-            weights = ShipwreckConfig.getBeachWeights();
-
-        //find the sum of all weights
-        int totalWeight = 0;
-        for (int weight : weights)
-            totalWeight += weight;
+    void finishPlan(World world, WreckPlan plan) {
+        WreckRecord record = WreckRecord.fromPlan(plan);
+        WreckIndex.get(world).add(record);
+        WreckFootprints.get(world).place(record);
 
-        int value = random.nextInt(totalWeight);
-        totalWeight = 0;
-        for (int i = 0; i < weights.length; ++i) {
-            totalWeight += weights[i];
-            if (totalWeight >= value) {
-//                if (i == 0) //the first index, weighted value for no ships to spawn so don't return a name
-//                    return null;
-//                else //return the name of the wreck corresponding to the weight
-                return ShipwreckConfig.getNames()[i]; //i - 1 as the weighted array has the no spawn value at index 0
-            }
-        }
-        return null;
+        WreckMetrics.increment(WreckMetrics.Counter.WRECKS, plan.structure);
+        WreckMetrics.add(WreckMetrics.Counter.BLOCKS, plan.structure, plan.positions.length);
     }
 }
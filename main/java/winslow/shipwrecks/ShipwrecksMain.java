@@ -12,7 +12,10 @@ import net.minecraftforge.common.util.EnumHelper;
 import net.minecraftforge.fml.common.Mod;
 import net.minecraftforge.fml.common.Mod.EventHandler;
 import net.minecraftforge.fml.common.event.FMLInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLPostInitializationEvent;
 import net.minecraftforge.fml.common.event.FMLPreInitializationEvent;
+import net.minecraftforge.fml.common.event.FMLServerStartingEvent;
+import net.minecraftforge.fml.common.event.FMLServerStoppingEvent;
 //import net.minecraftforge.fml.common.registry.EntityRegistry;
 import net.minecraftforge.fml.common.registry.GameRegistry;
 import winslow.shipwrecks.Proxy.CommonProxy;
@@ -34,6 +37,10 @@ public class ShipwrecksMain {
     private static ItemArmor.ArmorMaterial DIVING_ARMOR = EnumHelper.addArmorMaterial("DivingArmor", MODID + ":diving_armor",
             15, new int[]{3, 5, 4, 3}, 5, SoundEvents.ITEM_ARMOR_EQUIP_GENERIC, 0.0F);
 
+    static ShipwreckGen getGenerator() {
+        return shipwreckgen;
+    }
+
     @EventHandler
     public void PreInit(FMLPreInitializationEvent event) {
         ShipwreckConfig.initConfiguration(event);
@@ -58,4 +65,28 @@ public class ShipwrecksMain {
         //EntityRegistry.registerEgg(loc, 0x1f263a, 0x6b0000);
         GameRegistry.registerWorldGenerator(shipwreckgen, 5);
     }
-}
\ No newline at end of file
+
+    @EventHandler
+    public void PostInit(FMLPostInitializationEvent event) {
+        //compile structures and loot once all blocks and items (including other mods') are registered
+        StructureRegistry.loadTemplates();
+        WreckBiomes.loadCategories();
+        LootRegistry.loadTables();
+    }
+
+    @EventHandler
+    public void ServerStarting(FMLServerStartingEvent event) {
+        event.registerServerCommand(new CommandShipwrecks());
+        StructureWatcher.start();
+        WreckMetrics.startDumps();
+        WreckPregen.resume();
+    }
+
+    @EventHandler
+    public void ServerStopping(FMLServerStoppingEvent event) {
+        StructureWatcher.stop();
+        WreckMetrics.stopDumps();
+        WreckPregen.unload();
+        WreckScheduler.finishAll();
+    }
+}
@@ -0,0 +1,195 @@
+package winslow.shipwrecks;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * Reads and writes the compact binary structure format (.swb).
+ *
+ * Layout (big endian):
+ *   int magic, short version, boolean canFloat
+ *   palette:  short count, then per entry: string block, byte property mask, the set properties, then loot if bit 7 is set
+ *   sections: int count of groups
+ *   random:   int count, then per section: int min, int max, group
+ *   chance:   int count, then per section: boolean exclusive, int count, then per entry: int chance, int count of groups
+ *   damage:   int count, then per section: string facing (empty if unset), int count, then per entry: int chance, coords
+ *   group:    short palette index, coords
+ *   coords:   int count, then one packed int per coordinate (see StructureData.pack)
+ *   string:   short byte length, then UTF-8 bytes
+ */
+final class StructureCodec {
+    static final String EXTENSION = ".swb";
+    private static final int MAGIC = 0x5357524B; //"SWRK"
+    private static final short VERSION = 1;
+    private static final int LOOT_BIT = 0x80;
+
+    private StructureCodec() {
+    }
+
+    /*
+     * Write structure data in the binary format
+     */
+    static void write(StructureData data, OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeBoolean(data.canFloat);
+
+        out.writeShort(data.palette.length);
+        for (StructureData.BlockSpec spec : data.palette) {
+            writeString(out, spec.block);
+            int mask = spec.loot != null ? LOOT_BIT : 0;
+            for (int i = 0; i < spec.properties.length; ++i)
+                if (spec.properties[i] != null)
+                    mask |= 1 << i;
+            out.writeByte(mask);
+            for (String property : spec.properties)
+                if (property != null)
+                    writeString(out, property);
+            if (spec.loot != null)
+                writeString(out, spec.loot);
+        }
+
+        out.writeInt(data.sections.length);
+        for (StructureData.Group group : data.sections)
+            writeGroup(out, group);
+
+        out.writeInt(data.randomSections.length);
+        for (StructureData.RandomData section : data.randomSections) {
+            out.writeInt(section.min);
+            out.writeInt(section.max);
+            writeGroup(out, section.group);
+        }
+
+        out.writeInt(data.chanceSections.length);
+        for (StructureData.ChanceData section : data.chanceSections) {
+            out.writeBoolean(section.exclusive);
+            out.writeInt(section.chance.length);
+            for (int i = 0; i < section.chance.length; ++i) {
+                out.writeInt(section.chance[i]);
+                out.writeInt(section.blocks[i].length);
+                for (StructureData.Group group : section.blocks[i])
+                    writeGroup(out, group);
+            }
+        }
+
+        out.writeInt(data.damageSections.length);
+        for (StructureData.DamageData section : data.damageSections) {
+            writeString(out, section.facing == null ? "" : section.facing);
+            out.writeInt(section.chance.length);
+            for (int i = 0; i < section.chance.length; ++i) {
+                out.writeInt(section.chance[i]);
+                writeCoords(out, section.coords[i]);
+            }
+        }
+        out.flush();
+    }
+
+    /*
+     * Read structure data from a buffer holding a binary structure file (usually a memory-mapped file)
+     */
+    static StructureData read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a binary structure file");
+            short version = buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported binary structure version " + version);
+            boolean canFloat = buffer.get() != 0;
+
+            StructureData.BlockSpec[] palette = new StructureData.BlockSpec[buffer.getShort()];
+            for (int i = 0; i < palette.length; ++i) {
+                String block = readString(buffer);
+                int mask = buffer.get() & 0xFF;
+                String[] properties = new String[StructureData.PROPERTIES.length];
+                for (int j = 0; j < properties.length; ++j)
+                    if ((mask & (1 << j)) != 0)
+                        properties[j] = readString(buffer);
+                String loot = (mask & LOOT_BIT) != 0 ? readString(buffer) : null;
+                palette[i] = new StructureData.BlockSpec(block, properties, loot);
+            }
+
+            StructureData.Group[] sections = new StructureData.Group[buffer.getInt()];
+            for (int i = 0; i < sections.length; ++i)
+                sections[i] = readGroup(buffer, palette.length);
+
+            StructureData.RandomData[] randomSections = new StructureData.RandomData[buffer.getInt()];
+            for (int i = 0; i < randomSections.length; ++i) {
+                int min = buffer.getInt();
+                int max = buffer.getInt();
+                randomSections[i] = new StructureData.RandomData(min, max, readGroup(buffer, palette.length));
+            }
+
+            StructureData.ChanceData[] chanceSections = new StructureData.ChanceData[buffer.getInt()];
+            for (int i = 0; i < chanceSections.length; ++i) {
+                boolean exclusive = buffer.get() != 0;
+                int[] chance = new int[buffer.getInt()];
+                StructureData.Group[][] blocks = new StructureData.Group[chance.length][];
+                for (int j = 0; j < chance.length; ++j) {
+                    chance[j] = buffer.getInt();
+                    blocks[j] = new StructureData.Group[buffer.getInt()];
+                    for (int k = 0; k < blocks[j].length; ++k)
+                        blocks[j][k] = readGroup(buffer, palette.length);
+                }
+                chanceSections[i] = new StructureData.ChanceData(exclusive, chance, blocks);
+            }
+
+            StructureData.DamageData[] damageSections = new StructureData.DamageData[buffer.getInt()];
+            for (int i = 0; i < damageSections.length; ++i) {
+                String facing = readString(buffer);
+                int[] chance = new int[buffer.getInt()];
+                int[][] coords = new int[chance.length][];
+                for (int j = 0; j < chance.length; ++j) {
+                    chance[j] = buffer.getInt();
+                    coords[j] = readCoords(buffer);
+                }
+                damageSections[i] = new StructureData.DamageData(facing.isEmpty() ? null : facing, chance, coords);
+            }
+
+            return new StructureData(canFloat, palette, sections, randomSections, chanceSections, damageSections);
+        } catch (BufferUnderflowException | NegativeArraySizeException e) {
+            throw new IOException("Truncated binary structure file", e);
+        }
+    }
+
+    private static void writeGroup(DataOutputStream out, StructureData.Group group) throws IOException {
+        out.writeShort(group.palette);
+        writeCoords(out, group.coords);
+    }
+
+    private static StructureData.Group readGroup(ByteBuffer buffer, int paletteSize) throws IOException {
+        int palette = buffer.getShort() & 0xFFFF;
+        if (palette >= paletteSize)
+            throw new IOException("Palette index " + palette + " out of range");
+        return new StructureData.Group(palette, readCoords(buffer));
+    }
+
+    private static void writeCoords(DataOutputStream out, int[] coords) throws IOException {
+        out.writeInt(coords.length);
+        for (int coord : coords)
+            out.writeInt(coord);
+    }
+
+    private static int[] readCoords(ByteBuffer buffer) {
+        int[] coords = new int[buffer.getInt()];
+        buffer.asIntBuffer().get(coords);
+        buffer.position(buffer.position() + coords.length * 4);
+        return coords;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,75 @@
+package winslow.shipwrecks;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/*
+ * Command line tool that converts JSON structure files into the binary structure format.
+ * Doesn't need Minecraft on the classpath, only Gson.
+ *
+ * usage: StructureConverter [directory or file.json ...]
+ * with no arguments converts ./structures and the mod's structure assets (when run from the source tree)
+ */
+public final class StructureConverter {
+    private static final String[] DEFAULT_PATHS = {"./structures", "./main/resources/assets/" + ShipwrecksMain.MODID + "/structures"};
+
+    private StructureConverter() {
+    }
+
+    public static void main(String[] args) {
+        String[] paths = args.length > 0 ? args : DEFAULT_PATHS;
+        int converted = 0;
+        int failed = 0;
+
+        for (String path : paths) {
+            File file = new File(path);
+            File[] files = file.isDirectory() ? file.listFiles((dir, name) -> name.endsWith(".json")) : new File[]{file};
+            if (files == null || !file.exists())
+                continue;
+
+            for (File json : files) {
+                try {
+                    File binary = convert(json);
+                    System.out.println(json.getPath() + " (" + json.length() + " bytes) -> " + binary.getName()
+                            + " (" + binary.length() + " bytes)");
+                    ++converted;
+                } catch (JsonIOException | JsonSyntaxException | IOException | IllegalArgumentException | ClassCastException e) {
+                    System.out.println("Unable to convert " + json.getPath() + ": " + e.getMessage());
+                    ++failed;
+                }
+            }
+        }
+        System.out.println("Converted " + converted + " structures, " + failed + " failed");
+        if (failed > 0)
+            System.exit(1);
+    }
+
+    /*
+     * Convert a single JSON structure file, writing the binary file next to it. Returns the binary file.
+     */
+    static File convert(File json) throws IOException {
+        StructureData data;
+        try (Reader reader = new InputStreamReader(Files.newInputStream(json.toPath()), StandardCharsets.UTF_8)) {
+            data = StructureData.fromJson((JsonObject) new JsonParser().parse(reader));
+        }
+
+        String name = json.getName().substring(0, json.getName().length() - ".json".length());
+        File binary = new File(json.getParentFile(), name + StructureCodec.EXTENSION);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(binary))) {
+            StructureCodec.write(data, out);
+        }
+        return binary;
+    }
+}
@@ -0,0 +1,291 @@
+package winslow.shipwrecks;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * The raw contents of a structure file before any block names are resolved. Blocks are stored as a palette of
+ * block specs and every coordinate is packed into a single int. This is the form read from both the JSON and the
+ * binary structure formats, and it does not need the block registry so it can be used outside of Minecraft.
+ */
+final class StructureData {
+    static final String[] PROPERTIES = {"facing", "axis", "variant", "half", "part"};
+
+    final boolean canFloat;
+    final BlockSpec[] palette;
+    final Group[] sections;
+    final RandomData[] randomSections;
+    final ChanceData[] chanceSections;
+    final DamageData[] damageSections;
+
+    StructureData(boolean canFloat, BlockSpec[] palette, Group[] sections, RandomData[] randomSections,
+                  ChanceData[] chanceSections, DamageData[] damageSections) {
+        this.canFloat = canFloat;
+        this.palette = palette;
+        this.sections = sections;
+        this.randomSections = randomSections;
+        this.chanceSections = chanceSections;
+        this.damageSections = damageSections;
+    }
+
+    /*
+     * A block name plus the property values (indexed like PROPERTIES) and loot pool read from the structure file
+     */
+    static final class BlockSpec {
+        final String block;
+        final String[] properties; //null entries for properties that are not set
+        final String loot;
+
+        BlockSpec(String block, String[] properties, String loot) {
+            this.block = block;
+            this.properties = properties;
+            this.loot = loot;
+        }
+
+        String getProperty(String name) {
+            for (int i = 0; i < PROPERTIES.length; ++i)
+                if (PROPERTIES[i].equals(name))
+                    return properties[i];
+            return null;
+        }
+
+        /*
+         * Key used to share palette entries between identical block specs
+         */
+        private String key() {
+            StringBuilder builder = new StringBuilder(block);
+            for (String property : properties)
+                builder.append('|').append(property);
+            return builder.append('|').append(loot).toString();
+        }
+    }
+
+    /*
+     * A palette entry and the packed coordinates it is placed at
+     */
+    static final class Group {
+        final int palette;
+        final int[] coords;
+
+        Group(int palette, int[] coords) {
+            this.palette = palette;
+            this.coords = coords;
+        }
+    }
+
+    static final class RandomData {
+        final int min;
+        final int max;
+        final Group group;
+
+        RandomData(int min, int max, Group group) {
+            this.min = min;
+            this.max = max;
+            this.group = group;
+        }
+    }
+
+    static final class ChanceData {
+        final boolean exclusive;
+        final int[] chance;
+        final Group[][] blocks;
+
+        ChanceData(boolean exclusive, int[] chance, Group[][] blocks) {
+            this.exclusive = exclusive;
+            this.chance = chance;
+            this.blocks = blocks;
+        }
+    }
+
+    static final class DamageData {
+        final String facing; //null if the file didn't set a facing
+        final int[] chance;
+        final int[][] coords;
+
+        DamageData(String facing, int[] chance, int[][] coords) {
+            this.facing = facing;
+            this.chance = chance;
+            this.coords = coords;
+        }
+    }
+
+    /*
+     * Furthest x or z of the hull (sections and chance sections) from the origin. Rotating and mirroring only swap
+     * and negate x and z, so this is the same for every orientation.
+     */
+    int getRadius() {
+        int radius = 0;
+        for (Group group : sections)
+            radius = Math.max(radius, getRadius(group.coords));
+        for (ChanceData section : chanceSections)
+            for (Group[] groups : section.blocks)
+                for (Group group : groups)
+                    radius = Math.max(radius, getRadius(group.coords));
+        return radius;
+    }
+
+    private static int getRadius(int[] coords) {
+        int radius = 0;
+        for (int coord : coords)
+            radius = Math.max(radius, Math.max(Math.abs(unpackX(coord)), Math.abs(unpackZ(coord))));
+        return radius;
+    }
+
+    /*
+     * Pack a relative coordinate into an int, 10 bits per axis (-512 to 511)
+     */
+    static int pack(int x, int y, int z) {
+        if (x < -512 || x > 511 || y < -512 || y > 511 || z < -512 || z > 511)
+            throw new IllegalArgumentException("Structure coordinate out of range: [" + x + ", " + y + ", " + z + "]");
+        return ((x & 0x3FF) << 20) | ((y & 0x3FF) << 10) | (z & 0x3FF);
+    }
+
+    static int unpackX(int packed) {
+        return (packed << 2) >> 22;
+    }
+
+    static int unpackY(int packed) {
+        return (packed << 12) >> 22;
+    }
+
+    static int unpackZ(int packed) {
+        return (packed << 22) >> 22;
+    }
+
+    /*
+     * Read the structure sections out of a parsed JSON structure file
+     */
+    static StructureData fromJson(JsonObject jsonObj) {
+        JsonReader reader = new JsonReader();
+        boolean canFloat = jsonObj.has("can_float") && jsonObj.getAsJsonPrimitive("can_float").getAsBoolean();
+
+        List<Group> sections = new ArrayList<>();
+        if (jsonObj.has("sections")) {
+            JsonArray array = jsonObj.getAsJsonArray("sections");
+            for (int i = 0; i < array.size(); ++i) {
+                Group group = reader.readGroup(array.get(i).getAsJsonObject());
+                if (group != null)
+                    sections.add(group);
+            }
+        }
+
+        List<RandomData> randomSections = new ArrayList<>();
+        if (jsonObj.has("random")) {
+            JsonArray array = jsonObj.getAsJsonArray("random");
+            for (int i = 0; i < array.size(); ++i) {
+                JsonObject data = array.get(i).getAsJsonObject();
+                if (!data.has("range"))
+                    continue;
+                JsonArray range = data.getAsJsonArray("range");
+                Group group = reader.readGroup(data);
+                if (group != null)
+                    randomSections.add(new RandomData(range.get(0).getAsInt(), range.get(1).getAsInt(), group));
+            }
+        }
+
+        //a chance or damage section without a weight field stops generation of everything after it
+        boolean truncated = false;
+
+        List<ChanceData> chanceSections = new ArrayList<>();
+        if (jsonObj.has("chance_sections")) {
+            JsonArray array = jsonObj.getAsJsonArray("chance_sections");
+            for (int i = 0; i < array.size(); ++i) {
+                JsonObject data = array.get(i).getAsJsonObject();
+                if (!data.has("chance")) {
+                    truncated = true;
+                    break;
+                }
+                boolean exclusive = data.has("exclusive") && data.get("exclusive").getAsBoolean();
+                JsonArray chance = data.getAsJsonArray("chance");
+                JsonArray blocks = JsonFields.getArray(data, "chance_blocks");
+
+                int count = Math.min(chance.size(), blocks.size());
+                int[] chances = new int[count];
+                Group[][] groups = new Group[count][];
+                for (int j = 0; j < count; ++j) {
+                    chances[j] = chance.get(j).getAsInt();
+                    JsonArray pieces = blocks.get(j).getAsJsonArray();
+                    List<Group> read = new ArrayList<>();
+                    for (int k = 0; k < pieces.size(); ++k) {
+                        Group group = reader.readGroup(pieces.get(k).getAsJsonObject());
+                        if (group != null)
+                            read.add(group);
+                    }
+                    groups[j] = read.toArray(new Group[0]);
+                }
+                chanceSections.add(new ChanceData(exclusive, chances, groups));
+            }
+        }
+
+        List<DamageData> damageSections = new ArrayList<>();
+        if (jsonObj.has("damage_sections") && !truncated) {
+            JsonArray array = jsonObj.getAsJsonArray("damage_sections");
+            for (int i = 0; i < array.size(); ++i) {
+                JsonObject piece = array.get(i).getAsJsonObject();
+                if (!piece.has("chance"))
+                    break;
+                JsonArray chance = piece.getAsJsonArray("chance");
+                JsonArray blocks = JsonFields.getArray(piece, "chance_blocks");
+                String facing = piece.has("facing") ? piece.get("facing").getAsString() : null;
+
+                int count = Math.min(chance.size(), blocks.size());
+                int[] chances = new int[count];
+                int[][] coords = new int[count][];
+                for (int j = 0; j < count; ++j) {
+                    chances[j] = chance.get(j).getAsInt();
+                    coords[j] = readCoords(JsonFields.getArray(blocks.get(j).getAsJsonObject(), "coords"));
+                }
+                damageSections.add(new DamageData(facing, chances, coords));
+            }
+        }
+
+        return new StructureData(canFloat, reader.palette.toArray(new BlockSpec[0]), sections.toArray(new Group[0]),
+                randomSections.toArray(new RandomData[0]), chanceSections.toArray(new ChanceData[0]),
+                damageSections.toArray(new DamageData[0]));
+    }
+
+    /*
+     * Copy [x, y, z] triples out of the JSON as packed coordinates
+     */
+    private static int[] readCoords(JsonArray coords) {
+        int[] packed = new int[coords.size()];
+        for (int i = 0; i < coords.size(); ++i) {
+            JsonArray posArray = coords.get(i).getAsJsonArray();
+            packed[i] = pack(posArray.get(0).getAsInt(), posArray.get(1).getAsInt(), posArray.get(2).getAsInt());
+        }
+        return packed;
+    }
+
+    /*
+     * Builds the palette while block groups are read
+     */
+    private static final class JsonReader {
+        private final List<BlockSpec> palette = new ArrayList<>();
+        private final Map<String, Integer> indices = new HashMap<>();
+
+        private Group readGroup(JsonObject jsonObj) {
+            if (!jsonObj.has("block") || !jsonObj.has("coords")) //missing required field, don't know what block to add/where to put them
+                return null;
+
+            String[] properties = new String[PROPERTIES.length];
+            for (int i = 0; i < PROPERTIES.length; ++i)
+                if (jsonObj.has(PROPERTIES[i]))
+                    properties[i] = jsonObj.get(PROPERTIES[i]).getAsString();
+            String loot = jsonObj.has("loot") ? jsonObj.get("loot").getAsString() : null;
+
+            BlockSpec spec = new BlockSpec(jsonObj.get("block").getAsString(), properties, loot);
+            Integer index = indices.get(spec.key());
+            if (index == null) {
+                index = palette.size();
+                palette.add(spec);
+                indices.put(spec.key(), index);
+            }
+            return new Group(index, readCoords(jsonObj.getAsJsonArray("coords")));
+        }
+    }
+}
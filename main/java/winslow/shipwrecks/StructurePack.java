@@ -0,0 +1,173 @@
+package winslow.shipwrecks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * A bundle of validated structures in one file (.swp), written by StructurePackCompiler. The whole file is read in
+ * one go at startup and each structure is decoded from its slice only when it is asked for.
+ *
+ * Layout (big endian):
+ *   int magic, short version, int count
+ *   index:  per structure: string name, int offset, int length, int radius, int min y, int max y
+ *   data:   the structures in the binary structure format (see StructureCodec), offsets are from the start of data
+ *   string: short byte length, then UTF-8 bytes
+ */
+final class StructurePack {
+    static final String EXTENSION = ".swp";
+    static final String FILE_NAME = "pack" + EXTENSION;
+    private static final int MAGIC = 0x5357504B; //"SWPK"
+    private static final short VERSION = 1;
+
+    private final ByteBuffer data;
+    private final Map<String, Entry> entries;
+
+    private StructurePack(ByteBuffer data, Map<String, Entry> entries) {
+        this.data = data;
+        this.entries = entries;
+    }
+
+    /*
+     * Where a structure is in the pack, plus its hull size so tools can list a pack without decoding it
+     */
+    static final class Entry {
+        final String name;
+        final int offset;
+        final int length;
+        final int radius;
+        final int minY;
+        final int maxY;
+
+        Entry(String name, int offset, int length, int radius, int minY, int maxY) {
+            this.name = name;
+            this.offset = offset;
+            this.length = length;
+            this.radius = radius;
+            this.minY = minY;
+            this.maxY = maxY;
+        }
+    }
+
+    Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    boolean contains(String name) {
+        return entries.containsKey(name);
+    }
+
+    /*
+     * Decode one structure, null if it isn't in the pack
+     */
+    StructureData readStructure(String name) throws IOException {
+        Entry entry = entries.get(name);
+        if (entry == null)
+            return null;
+
+        ByteBuffer slice = data.duplicate();
+        slice.position(entry.offset);
+        slice.limit(entry.offset + entry.length);
+        return StructureCodec.read(slice.slice());
+    }
+
+    /*
+     * Write a pack holding the structures in the map's order
+     */
+    static void write(Map<String, StructureData> structures, OutputStream stream) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+
+        for (Map.Entry<String, StructureData> structure : structures.entrySet()) {
+            int offset = body.size();
+            StructureCodec.write(structure.getValue(), body);
+
+            int[] height = getHeight(structure.getValue());
+            writeString(indexOut, structure.getKey());
+            indexOut.writeInt(offset);
+            indexOut.writeInt(body.size() - offset);
+            indexOut.writeInt(structure.getValue().getRadius());
+            indexOut.writeInt(height[0]);
+            indexOut.writeInt(height[1]);
+        }
+
+        DataOutputStream out = new DataOutputStream(stream);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(structures.size());
+        index.writeTo(out);
+        body.writeTo(out);
+        out.flush();
+    }
+
+    /*
+     * Read a pack's index from a buffer holding the whole file. The buffer is kept to decode structures from.
+     */
+    static StructurePack read(ByteBuffer buffer) throws IOException {
+        try {
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("Not a structure pack");
+            short version = buffer.getShort();
+            if (version != VERSION)
+                throw new IOException("Unsupported structure pack version " + version);
+
+            int count = buffer.getInt();
+            Map<String, Entry> entries = new LinkedHashMap<>();
+            for (int i = 0; i < count; ++i) {
+                String name = readString(buffer);
+                entries.put(name, new Entry(name, buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt(), buffer.getInt()));
+            }
+
+            ByteBuffer data = buffer.slice();
+            for (Entry entry : entries.values())
+                if (entry.offset < 0 || entry.length < 0 || entry.offset + entry.length > data.limit())
+                    throw new IOException("Structure " + entry.name + " is outside the pack");
+            return new StructurePack(data, Collections.unmodifiableMap(entries));
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated structure pack", e);
+        }
+    }
+
+    /*
+     * Lowest and highest y of the hull as written in the structure file
+     */
+    private static int[] getHeight(StructureData data) {
+        int[] height = {Integer.MAX_VALUE, Integer.MIN_VALUE};
+        for (StructureData.Group group : data.sections)
+            getHeight(group.coords, height);
+        for (StructureData.ChanceData section : data.chanceSections)
+            for (StructureData.Group[] groups : section.blocks)
+                for (StructureData.Group group : groups)
+                    getHeight(group.coords, height);
+        if (height[0] > height[1]) //no blocks at all
+            height[0] = height[1] = 0;
+        return height;
+    }
+
+    private static void getHeight(int[] coords, int[] height) {
+        for (int coord : coords) {
+            height[0] = Math.min(height[0], StructureData.unpackY(coord));
+            height[1] = Math.max(height[1], StructureData.unpackY(coord));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,247 @@
+package winslow.shipwrecks;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Command line tool that checks every structure in the structure folders and bundles them into one structure pack.
+ * Block names and properties are checked against a block snapshot saved in game with /shipwrecks blocks, so bad
+ * files are caught at build time instead of being skipped on a server. Nothing is written if any structure fails.
+ * Doesn't need Minecraft on the classpath, only Gson.
+ *
+ * usage: StructurePackCompiler [-blocks blocks.json] [-o pack.swp] [directory ...]
+ *        StructurePackCompiler -list pack.swp
+ * defaults to ./shipwrecks_blocks.json and the mod's structure assets, writing the mod's pack
+ * (main/resources/assets/<modid>/structures/pack.swp) so it ships in the jar. A server's own structures can be
+ * built from a working folder with -o ./structures/pack.swp. StructureRegistry reads the mod's structures and loose
+ * ./structures files before ./structures/pack.swp, so structures in the pack that would load from one of those
+ * instead are reported.
+ */
+public final class StructurePackCompiler {
+    private static final String DEFAULT_BLOCKS = "./" + ShipwrecksMain.MODID + "_blocks.json";
+    private static final String MOD_PATH = "./main/resources/assets/" + ShipwrecksMain.MODID + "/structures";
+    private static final String DEFAULT_OUTPUT = MOD_PATH + "/" + StructurePack.FILE_NAME;
+
+    private StructurePackCompiler() {
+    }
+
+    public static void main(String[] args) {
+        String blocksPath = DEFAULT_BLOCKS;
+        String output = DEFAULT_OUTPUT;
+        List<String> paths = new ArrayList<>();
+
+        if (args.length == 2 && args[0].equals("-list")) {
+            list(new File(args[1]));
+            return;
+        }
+
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "-blocks":
+                    blocksPath = args[++i];
+                    break;
+                case "-o":
+                    output = args[++i];
+                    break;
+                default:
+                    paths.add(args[i]);
+            }
+        }
+        if (paths.isEmpty())
+            paths.add(MOD_PATH);
+
+        BlockSnapshot blocks = null;
+        File blocksFile = new File(blocksPath);
+        if (blocksFile.exists()) {
+            try (Reader reader = new InputStreamReader(Files.newInputStream(blocksFile.toPath()), StandardCharsets.UTF_8)) {
+                blocks = BlockSnapshot.fromJson((JsonObject) new JsonParser().parse(reader));
+                System.out.println("Checking blocks against " + blocksFile.getPath() + " (" + blocks.size() + " blocks)");
+            } catch (JsonIOException | JsonSyntaxException | IOException | IllegalArgumentException | IllegalStateException
+                    | ClassCastException e) {
+                System.out.println("Unable to read block snapshot " + blocksFile.getPath() + ": " + e.getMessage());
+                System.exit(1);
+            }
+        } else {
+            System.out.println("No block snapshot at " + blocksFile.getPath() + ", block names will not be checked");
+        }
+
+        Map<String, StructureData> structures = new LinkedHashMap<>();
+        int failed = 0;
+        for (String path : paths) {
+            File[] files = new File(path).listFiles((dir, name) -> name.endsWith(".json") || name.endsWith(StructureCodec.EXTENSION));
+            if (files == null)
+                continue;
+            Arrays.sort(files);
+
+            for (File file : files) {
+                String name = getName(file);
+                //earlier folders take priority (list the mod's folder first, as in game), and a binary file over JSON like StructureRegistry
+                if (structures.containsKey(name) || (file.getName().endsWith(".json")
+                        && new File(file.getParentFile(), name + StructureCodec.EXTENSION).exists()))
+                    continue;
+
+                try {
+                    StructureData data = read(file);
+                    Set<String> problems = check(data, blocks);
+                    if (problems.isEmpty()) {
+                        structures.put(name, data);
+                        continue;
+                    }
+                    for (String problem : problems)
+                        System.out.println(file.getPath() + ": " + problem);
+                } catch (JsonIOException | JsonSyntaxException | IOException | IllegalArgumentException
+                        | IllegalStateException | ClassCastException e) {
+                    System.out.println(file.getPath() + ": " + e.getMessage());
+                }
+                ++failed;
+            }
+        }
+
+        if (failed > 0) {
+            System.out.println(failed + " structures failed, no pack written");
+            System.exit(1);
+        }
+
+        File outputFile = new File(output);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outputFile))) {
+            StructurePack.write(structures, out);
+        } catch (IOException e) {
+            System.out.println("Unable to write " + outputFile.getPath() + ": " + e.getMessage());
+            System.exit(1);
+        }
+
+        for (Map.Entry<String, StructureData> structure : structures.entrySet())
+            System.out.println("  " + structure.getKey() + " (" + structure.getValue().palette.length + " blocks in palette, radius "
+                    + structure.getValue().getRadius() + ")");
+        System.out.println("Wrote " + structures.size() + " structures to " + outputFile.getPath() + " (" + outputFile.length() + " bytes)");
+        warnShadowed(structures.keySet(), outputFile);
+    }
+
+    /*
+     * Report structures in a pack that load from somewhere else in game. The mod's pack is read before anything
+     * else, but a pack in ./structures comes after the mod's structures and the loose files next to it.
+     */
+    private static void warnShadowed(Set<String> names, File pack) {
+        File modFolder = new File(MOD_PATH);
+        File folder = pack.getAbsoluteFile().getParentFile();
+        try {
+            if (modFolder.exists() && folder.getCanonicalFile().equals(modFolder.getCanonicalFile()))
+                return;
+        } catch (IOException e) {
+            System.out.println("Unable to resolve " + folder.getPath() + ": " + e.getMessage());
+        }
+
+        StructurePack modPack = null;
+        File modPackFile = new File(modFolder, StructurePack.FILE_NAME);
+        if (modPackFile.exists()) {
+            try {
+                modPack = StructurePack.read(ByteBuffer.wrap(Files.readAllBytes(modPackFile.toPath())));
+            } catch (IOException e) {
+                System.out.println("Unable to read " + modPackFile.getPath() + ": " + e.getMessage());
+            }
+        }
+
+        for (String name : names) {
+            String shadow = modPack != null && modPack.contains(name) ? modPackFile.getPath() : findLoose(modFolder, name);
+            if (shadow == null)
+                shadow = findLoose(folder, name);
+            if (shadow != null)
+                System.out.println("Warning: " + name + " loads from " + shadow + " in game, not from this pack");
+        }
+    }
+
+    /*
+     * The structure file StructureRegistry would read from a folder, null if there isn't one
+     */
+    private static String findLoose(File folder, String name) {
+        File binary = new File(folder, name + StructureCodec.EXTENSION);
+        if (binary.exists())
+            return binary.getPath();
+        File json = new File(folder, name + ".json");
+        return json.exists() ? json.getPath() : null;
+    }
+
+    /*
+     * Print a pack's index
+     */
+    private static void list(File file) {
+        try {
+            StructurePack pack = StructurePack.read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+            for (StructurePack.Entry entry : pack.getEntries().values())
+                System.out.println("  " + entry.name + ": " + entry.length + " bytes, radius " + entry.radius + ", y "
+                        + entry.minY + " to " + entry.maxY);
+            System.out.println(pack.getEntries().size() + " structures in " + file.getPath());
+        } catch (IOException e) {
+            System.out.println("Unable to read " + file.getPath() + ": " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static String getName(File file) {
+        String name = file.getName();
+        return name.substring(0, name.lastIndexOf('.'));
+    }
+
+    private static StructureData read(File file) throws IOException {
+        if (file.getName().endsWith(StructureCodec.EXTENSION))
+            return StructureCodec.read(ByteBuffer.wrap(Files.readAllBytes(file.toPath())));
+        try (Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8)) {
+            return StructureData.fromJson((JsonObject) new JsonParser().parse(reader));
+        }
+    }
+
+    /*
+     * Everything that would make the structure load differently in game than it reads in the file
+     */
+    private static Set<String> check(StructureData data, BlockSnapshot blocks) {
+        Set<String> problems = new LinkedHashSet<>(); //palette entries for the same block often share a problem
+        if (data.sections.length == 0 && data.chanceSections.length == 0)
+            problems.add("no sections, nothing would be placed");
+
+        int radius = data.getRadius();
+        if (radius > WreckFootprints.MAX_RADIUS)
+            problems.add("hull reaches " + radius + " blocks from the origin, wrecks can't be larger than " + WreckFootprints.MAX_RADIUS);
+
+        //the planner rolls nextInt(chance) and nextInt(max - min), which throw on anything below 1
+        for (StructureData.ChanceData section : data.chanceSections)
+            for (int chance : section.chance)
+                if (chance < 1)
+                    problems.add("chance section with a chance of " + chance + ", must be at least 1");
+        for (StructureData.DamageData section : data.damageSections)
+            for (int chance : section.chance)
+                if (chance < 1)
+                    problems.add("damage section with a chance of " + chance + ", must be at least 1");
+        for (StructureData.RandomData section : data.randomSections)
+            if (section.max <= section.min)
+                problems.add("random section range [" + section.min + ", " + section.max + "] is empty");
+
+        if (blocks != null) {
+            for (StructureData.BlockSpec spec : data.palette) {
+                String problem = blocks.check(spec);
+                if (problem != null)
+                    problems.add(problem);
+            }
+        }
+        return problems;
+    }
+}
@@ -0,0 +1,169 @@
+package winslow.shipwrecks;
+
+import com.google.common.io.ByteStreams;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Loads every structure named in the config once and keeps the compiled templates in memory
+ */
+class StructureRegistry {
+    private static final String ASSET_PATH = "/assets/" + ShipwrecksMain.MODID + "/structures/";
+    static final File STRUCTURE_FOLDER = new File("./structures");
+
+    //read by the planner threads, so both are replaced rather than modified
+    private static volatile Map<String, StructureTemplate> templates = Collections.emptyMap();
+    private static volatile boolean loaded = false;
+    private static StructurePack modPack; //packs built by StructurePackCompiler, null if there isn't one
+    private static StructurePack serverPack;
+
+    /*
+     * read and compile all structures listed in the config. Blocks must be registered before this is called.
+     */
+    static synchronized void loadTemplates() {
+        loadPacks();
+        Map<String, StructureTemplate> compiled = new HashMap<>();
+        for (String name : ShipwreckConfig.getNames()) {
+            StructureTemplate template = loadTemplate(name);
+            if (template != null)
+                compiled.put(name, template);
+        }
+        templates = Collections.unmodifiableMap(compiled);
+        loaded = true;
+    }
+
+    /*
+     * Read the mod's structure pack and ./structures/pack.swp, each in one read
+     */
+    private static void loadPacks() {
+        modPack = null;
+        try (InputStream in = ShipwrecksMain.class.getResourceAsStream(ASSET_PATH + StructurePack.FILE_NAME)) {
+            if (in != null)
+                modPack = StructurePack.read(ByteBuffer.wrap(ByteStreams.toByteArray(in)));
+        } catch (IOException e) {
+            System.out.println("Unable to load the mod's structure pack: " + e.getMessage());
+        }
+
+        serverPack = null;
+        File packFile = new File(STRUCTURE_FOLDER, StructurePack.FILE_NAME);
+        if (packFile.exists()) {
+            try {
+                serverPack = StructurePack.read(ByteBuffer.wrap(Files.readAllBytes(packFile.toPath())));
+            } catch (IOException e) {
+                System.out.println("Unable to load structure pack " + packFile.getPath() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /*
+     * Recompile one structure after its file changed and publish it, or drop it if the file is gone and there is
+     * no packaged copy. Returns false if the structure isn't named in the config.
+     */
+    static synchronized boolean reloadTemplate(String name) {
+        if (!Arrays.asList(ShipwreckConfig.getNames()).contains(name))
+            return false;
+
+        Map<String, StructureTemplate> compiled = new HashMap<>(templates);
+        StructureTemplate template = loadTemplate(name);
+        if (template != null)
+            compiled.put(name, template);
+        else
+            compiled.remove(name);
+        templates = Collections.unmodifiableMap(compiled);
+        return true;
+    }
+
+    /*
+     * Get the compiled template for a structure name, null if the structure could not be loaded
+     */
+    static StructureTemplate getTemplate(String name) {
+        if (!loaded) {
+            synchronized (StructureRegistry.class) {
+                if (!loaded)
+                    loadTemplates();
+            }
+        }
+        return templates.get(name);
+    }
+
+    /*
+     * Read and compile a single structure from the mod jar or the ./structures folder
+     */
+    private static StructureTemplate loadTemplate(String name) {
+        long start = WreckMetrics.start();
+        try {
+            StructureData data = readStructure(name);
+            return data == null ? null : StructureTemplate.compile(name, data);
+        } catch (JsonIOException | JsonSyntaxException | IOException | IllegalArgumentException | ClassCastException e) {
+            System.out.println("Unable to load structure " + name + ": " + e.getMessage());
+            return null;
+        } finally {
+            WreckMetrics.record(WreckMetrics.Timer.TEMPLATE_LOAD, name, start);
+        }
+    }
+
+    /*
+     * Structures packaged with the mod take priority over custom structures in ./structures.
+     * In the mod the structure pack comes first, then the binary format, falling back to JSON. In ./structures loose
+     * files come before the pack, so a structure being worked on can be changed without rebuilding the pack.
+     */
+    static StructureData readStructure(String name) throws IOException {
+        if (modPack != null && modPack.contains(name))
+            return modPack.readStructure(name);
+
+        InputStream binary = ShipwrecksMain.class.getResourceAsStream(ASSET_PATH + name + StructureCodec.EXTENSION);
+        if (binary != null) {
+            try (InputStream in = binary) {
+                return StructureCodec.read(ByteBuffer.wrap(ByteStreams.toByteArray(in)));
+            }
+        }
+
+        InputStream json = ShipwrecksMain.class.getResourceAsStream(ASSET_PATH + name + ".json");
+        if (json != null)
+            return readJson(json);
+
+        File binaryFile = new File(STRUCTURE_FOLDER, name + StructureCodec.EXTENSION);
+        if (binaryFile.exists())
+            return readMapped(binaryFile);
+
+        File jsonFile = new File(STRUCTURE_FOLDER, name + ".json");
+        if (jsonFile.exists())
+            return readJson(jsonFile.toURI().toURL().openStream());
+
+        if (serverPack != null && serverPack.contains(name))
+            return serverPack.readStructure(name);
+        return null;
+    }
+
+    /*
+     * Memory-map a binary structure file and decode it without copying the file onto the heap
+     */
+    private static StructureData readMapped(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return StructureCodec.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static StructureData readJson(InputStream stream) throws IOException {
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            return StructureData.fromJson((JsonObject) new JsonParser().parse(reader));
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package winslow.shipwrecks;
+
+import com.google.gson.JsonObject;
+import net.minecraft.block.Block;
+import net.minecraft.block.BlockBed.EnumPartType;
+import net.minecraft.block.BlockDoor;
+import net.minecraft.block.BlockLog.EnumAxis;
+import net.minecraft.block.BlockPlanks.EnumType;
+import net.minecraft.block.BlockSlab.EnumBlockHalf;
+import net.minecraft.block.BlockStairs;
+import net.minecraft.block.properties.IProperty;
+import net.minecraft.block.properties.PropertyDirection;
+import net.minecraft.block.properties.PropertyEnum;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.EnumFacing;
+import net.minecraft.util.Mirror;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/*
+ * An immutable, compiled copy of a structure file. Each structure is compiled into pre-rotated variants
+ * (four orientations, plain and mirrored) with block states already resolved and coordinates stored in
+ * primitive arrays, so placement only copies data and never rotates anything.
+ */
+final class StructureTemplate {
+    static final int ORIENTATIONS = 4; //E, W, N, S orientation
+    static final int VARIANTS = ORIENTATIONS * 2; //each orientation plain and mirrored
+
+    final String name;
+    final boolean canFloat;
+    final int radius; //furthest x or z of the hull from the origin in any orientation, random sections not included
+    private final Variant[] variants;
+
+    private StructureTemplate(String name, boolean canFloat, int radius, Variant[] variants) {
+        this.name = name;
+        this.canFloat = canFloat;
+        this.radius = radius;
+        this.variants = variants;
+    }
+
+    /*
+     * Get a pre-rotated layout. Variants 0-3 are the E, W, N, S orientations, 4-7 are the same orientations mirrored.
+     */
+    Variant getVariant(int variant) {
+        return variants[variant];
+    }
+
+    /*
+     * One fully rotated (and possibly mirrored) layout of the structure
+     */
+    static final class Variant {
+        final BlockGroup[] sections;
+        final RandomSection[] randomSections;
+        final ChanceSection[] chanceSections;
+        final DamageSection[] damageSections;
+
+        private Variant(BlockGroup[] sections, RandomSection[] randomSections, ChanceSection[] chanceSections,
+                        DamageSection[] damageSections) {
+            this.sections = sections;
+            this.randomSections = randomSections;
+            this.chanceSections = chanceSections;
+            this.damageSections = damageSections;
+        }
+    }
+
+    /*
+     * A single block state and the rotated coordinates it is placed at
+     */
+    static final class BlockGroup {
+        final IBlockState state;
+        final int[] xs;
+        final int[] ys;
+        final int[] zs;
+        final String loot; //null for blocks without an inventory
+
+        private BlockGroup(IBlockState state, int[] xs, int[] ys, int[] zs, String loot) {
+            this.state = state;
+            this.xs = xs;
+            this.ys = ys;
+            this.zs = zs;
+            this.loot = loot;
+        }
+    }
+
+    /*
+     * Structure piece that appears a random distance from the center of the structure
+     */
+    static final class RandomSection {
+        final int min;
+        final int max;
+        final BlockGroup group;
+
+        private RandomSection(int min, int max, BlockGroup group) {
+            this.min = min;
+            this.max = max;
+            this.group = group;
+        }
+    }
+
+    /*
+     * Groups of blocks that each have a 1 in chance[i] chance to spawn
+     */
+    static final class ChanceSection {
+        final boolean exclusive;
+        final int[] chance;
+        final BlockGroup[][] blocks; //blocks[i] is placed when chance[i] succeeds
+
+        private ChanceSection(boolean exclusive, int[] chance, BlockGroup[][] blocks) {
+            this.exclusive = exclusive;
+            this.chance = chance;
+            this.blocks = blocks;
+        }
+    }
+
+    /*
+     * Groups of coordinates that are replaced by the block 1 away (in the facing direction) and 1 Y coord up
+     */
+    static final class DamageSection {
+        final EnumFacing facing;
+        final int[] chance;
+        final int[][] xs; //xs[i] is damaged when chance[i] succeeds
+        final int[][] ys;
+        final int[][] zs;
+
+        private DamageSection(EnumFacing facing, int[] chance, int[][] xs, int[][] ys, int[][] zs) {
+            this.facing = facing;
+            this.chance = chance;
+            this.xs = xs;
+            this.ys = ys;
+            this.zs = zs;
+        }
+    }
+
+    /*
+     * Compile a parsed structure file. Block names must already be registered.
+     */
+    static StructureTemplate fromJson(String name, JsonObject jsonObj) {
+        return compile(name, StructureData.fromJson(jsonObj));
+    }
+
+    /*
+     * Compile raw structure data (from either the JSON or binary format). Block names must already be registered.
+     */
+    static StructureTemplate compile(String name, StructureData data) {
+        //resolve each palette entry once per orientation, null entries are unknown blocks and are skipped
+        IBlockState[][] states = new IBlockState[VARIANTS][data.palette.length];
+        for (int i = 0; i < data.palette.length; ++i) {
+            Block block = Block.getBlockFromName(data.palette[i].block);
+            if (block == null) //blockType incorrect, unknown block to add.
+                continue;
+            for (int variant = 0; variant < VARIANTS; ++variant) {
+                IBlockState state = resolveState(block, data.palette[i], variant % ORIENTATIONS);
+                states[variant][i] = variant >= ORIENTATIONS ? state.withMirror(Mirror.LEFT_RIGHT) : state;
+            }
+        }
+
+        Variant[] variants = new Variant[VARIANTS];
+        for (int variant = 0; variant < VARIANTS; ++variant)
+            variants[variant] = compileVariant(data, states[variant], variant % ORIENTATIONS, variant >= ORIENTATIONS);
+
+        return new StructureTemplate(name, data.canFloat, data.getRadius(), variants);
+    }
+
+    /*
+     * Compile every section of the structure for a single orientation
+     */
+    private static Variant compileVariant(StructureData data, IBlockState[] states, int orientation, boolean mirrored) {
+        List<BlockGroup> sections = new ArrayList<>();
+        for (StructureData.Group group : data.sections) {
+            BlockGroup compiled = compileGroup(data, states, group, orientation, mirrored);
+            if (compiled != null)
+                sections.add(compiled);
+        }
+
+        List<RandomSection> randomSections = new ArrayList<>();
+        for (StructureData.RandomData section : data.randomSections) {
+            BlockGroup compiled = compileGroup(data, states, section.group, orientation, mirrored);
+            if (compiled != null)
+                randomSections.add(new RandomSection(section.min, section.max, compiled));
+        }
+
+        ChanceSection[] chanceSections = new ChanceSection[data.chanceSections.length];
+        for (int i = 0; i < chanceSections.length; ++i) {
+            StructureData.ChanceData section = data.chanceSections[i];
+            BlockGroup[][] groups = new BlockGroup[section.blocks.length][];
+            for (int j = 0; j < groups.length; ++j) {
+                List<BlockGroup> compiled = new ArrayList<>();
+                for (StructureData.Group group : section.blocks[j]) {
+                    BlockGroup blockGroup = compileGroup(data, states, group, orientation, mirrored);
+                    if (blockGroup != null)
+                        compiled.add(blockGroup);
+                }
+                groups[j] = compiled.toArray(new BlockGroup[0]);
+            }
+            chanceSections[i] = new ChanceSection(section.exclusive, section.chance, groups);
+        }
+
+        DamageSection[] damageSections = new DamageSection[data.damageSections.length];
+        for (int i = 0; i < damageSections.length; ++i) {
+            StructureData.DamageData section = data.damageSections[i];
+
+            EnumFacing facing = null;
+            if (section.facing != null) {
+                facing = getFacing(orientation, section.facing);
+                if (facing != null && mirrored)
+                    facing = Mirror.LEFT_RIGHT.mirror(facing);
+            }
+
+            int[][] xs = new int[section.coords.length][];
+            int[][] ys = new int[section.coords.length][];
+            int[][] zs = new int[section.coords.length][];
+            for (int j = 0; j < xs.length; ++j) {
+                xs[j] = new int[section.coords[j].length];
+                ys[j] = new int[section.coords[j].length];
+                zs[j] = new int[section.coords[j].length];
+                unpackCoords(section.coords[j], xs[j], ys[j], zs[j], orientation, mirrored);
+            }
+            damageSections[i] = new DamageSection(facing, section.chance, xs, ys, zs);
+        }
+
+        return new Variant(sections.toArray(new BlockGroup[0]), randomSections.toArray(new RandomSection[0]),
+                chanceSections, damageSections);
+    }
+
+    /*
+     * Look up the resolved block state and unpack the rotated coordinates.
+     * Returns null if the block is unknown.
+     */
+    private static BlockGroup compileGroup(StructureData data, IBlockState[] states, StructureData.Group group,
+                                           int orientation, boolean mirrored) {
+        IBlockState state = states[group.palette];
+        if (state == null)
+            return null;
+
+        int[] xs = new int[group.coords.length];
+        int[] ys = new int[group.coords.length];
+        int[] zs = new int[group.coords.length];
+        unpackCoords(group.coords, xs, ys, zs, orientation, mirrored);
+
+        return new BlockGroup(state, xs, ys, zs, data.palette[group.palette].loot);
+    }
+
+    /*
+     * Unpack coordinates into the passed arrays, converted to the correct position based on orientation.
+     * Y is shifted down by one so 0 is the seafloor block. Mirroring flips the rotated z coordinate.
+     */
+    private static void unpackCoords(int[] coords, int[] xs, int[] ys, int[] zs, int orientation, boolean mirrored) {
+        for (int i = 0; i < coords.length; ++i) {
+            int x = StructureData.unpackX(coords[i]);
+            int z = StructureData.unpackZ(coords[i]);
+
+            xs[i] = rotateX(orientation, x, z);
+            ys[i] = StructureData.unpackY(coords[i]) - 1;
+            zs[i] = mirrored ? -rotateZ(orientation, x, z) : rotateZ(orientation, x, z);
+        }
+    }
+
+    /*
+     * convert an x coord to the correct position based on orientation
+     */
+    static int rotateX(int orientation, int x, int z) {
+        switch (orientation) {
+            case 1: //West
+                return -x;
+            case 2: //North
+                return -z;
+            case 3: //South
+                return z;
+            default:
+                return x;
+        }
+    }
+
+    /*
+     * convert a z coord to the correct position based on orientation
+     */
+    static int rotateZ(int orientation, int x, int z) {
+        switch (orientation) {
+            case 1: //West
+                return -z;
+            case 2: //North
+                return x;
+            case 3: //South
+                return -x;
+            default:
+                return z;
+        }
+    }
+
+    /*
+     * iterate over the block's properties and add any values that appear in the structure file.
+     */
+    @SuppressWarnings("unchecked") //suppressed as cast exceptions will be caught and I haven't found a better solution for casting properties
+    private static IBlockState resolveState(Block block, StructureData.BlockSpec spec, int orientation) {
+        IBlockState blkState = block.getDefaultState();
+        Collection<IProperty<?>> propertyKeys = block.getDefaultState().getPropertyKeys();
+        String value;
+
+        try {
+            for (IProperty<?> property : propertyKeys) {
+                if (property.getName().equals("facing") && spec.getProperty("facing") != null) {
+                    value = spec.getProperty("facing");
+                    blkState = blkState.withProperty((PropertyDirection) property, getFacing(orientation, value));
+                } else if (property.getName().equals("axis") && spec.getProperty("axis") != null) {
+                    value = spec.getProperty("axis");
+                    blkState = blkState.withProperty((PropertyEnum) property, getAxis(orientation, value));
+                } else if (property.getName().equals("variant") && spec.getProperty("variant") != null) {
+                    value = spec.getProperty("variant");
+                    blkState = blkState.withProperty((PropertyEnum) property, EnumType.valueOf(value));
+                } else if (property.getName().equals("half") && spec.getProperty("half") != null) {
+                    value = spec.getProperty("half");
+                    if (block.getUnlocalizedName().contains("door"))
+                        blkState = blkState.withProperty((PropertyEnum) property, BlockDoor.EnumDoorHalf.valueOf(value));
+                    else if (block.getUnlocalizedName().contains("stair"))
+                        blkState = blkState.withProperty((PropertyEnum) property, BlockStairs.EnumHalf.valueOf(value));
+                    else
+                        blkState = blkState.withProperty((PropertyEnum) property, EnumBlockHalf.valueOf(value));
+                } else if (property.getName().equals("part") && spec.getProperty("part") != null) {
+                    value = spec.getProperty("part");
+                    blkState = blkState.withProperty((PropertyEnum) property, EnumPartType.valueOf(value));
+                }
+            }
+        }
+        catch (ClassCastException e) {
+            System.out.println(e.getMessage());
+        }
+        return blkState;
+    }
+
+    /*
+     * Get the facing direction and rotate the face of the object from the default East facing to the
+     * correct facing for W, N, or S facing structures
+     */
+    static EnumFacing getFacing(int orientation, String facing) {
+
+        EnumFacing dir = EnumFacing.byName(facing);//EnumFacing.EAST;
+
+        if (dir != null) {
+            switch (orientation) {
+                case 1:    //West
+                    dir = dir.rotateY();
+                    dir = dir.rotateY();
+                    break;
+                case 2:    //North
+                    dir = dir.rotateY();
+                    break;
+                case 3:    //South
+                    dir = dir.rotateYCCW();
+                    break;
+            }
+        }
+        return dir;
+    }
+
+    /*
+     * Get the axis direction and rotate the object from the default East facing to the
+     * correct facing for W, N, or S facing structures
+     */
+    static EnumAxis getAxis(int orientation, String facing) {
+        EnumAxis axis = EnumAxis.valueOf(facing);//EnumAxis.Y;
+        if (axis == EnumAxis.Y)
+            return axis;
+
+        if (axis == EnumAxis.NONE)
+            return axis;
+
+        if (orientation == 2 || orientation == 3)
+            return (axis == EnumAxis.X) ? EnumAxis.Z : EnumAxis.X;
+
+        return axis;
+    }
+}
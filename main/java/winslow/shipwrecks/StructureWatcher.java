@@ -0,0 +1,147 @@
+package winslow.shipwrecks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Watches ./structures, ./loot and the config file while the server runs. Changed structures are recompiled, and
+ * a changed config or structure pack is reloaded along with every structure it names, all on a background thread.
+ * Each reload publishes a complete new snapshot, so generation never sees a half-loaded state.
+ */
+class StructureWatcher implements Runnable {
+    private static final long SETTLE_MILLIS = 500; //editors often write a file in several steps
+    private static StructureWatcher running;
+
+    private final WatchService service;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    private final Path configFile;
+
+    private StructureWatcher(WatchService service, Path configFile) {
+        this.service = service;
+        this.configFile = configFile;
+    }
+
+    /*
+     * Start watching, does nothing if already started
+     */
+    static synchronized void start() {
+        if (running != null)
+            return;
+
+        File config = ShipwreckConfig.getConfigFile();
+        try {
+            WatchService service = FileSystems.getDefault().newWatchService();
+            StructureWatcher watcher = new StructureWatcher(service, config == null ? null : config.toPath().toAbsolutePath().normalize());
+            watcher.register(StructureRegistry.STRUCTURE_FOLDER);
+            watcher.register(LootRegistry.LOOT_FOLDER);
+            if (config != null)
+                watcher.register(config.getAbsoluteFile().getParentFile());
+
+            Thread thread = new Thread(watcher, "Shipwreck Structure Watcher");
+            thread.setDaemon(true);
+            thread.start();
+            running = watcher;
+        } catch (IOException e) {
+            System.out.println("Unable to watch for structure changes: " + e.getMessage());
+        }
+    }
+
+    static synchronized void stop() {
+        if (running == null)
+            return;
+        try {
+            running.service.close();
+        } catch (IOException e) {
+            System.out.println("Unable to stop watching for structure changes: " + e.getMessage());
+        }
+        running = null;
+    }
+
+    private void register(File directory) throws IOException {
+        if (!directory.isDirectory())
+            return;
+        Path path = directory.toPath().toAbsolutePath().normalize();
+        WatchKey key = path.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        directories.put(key, path);
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                Thread.sleep(SETTLE_MILLIS);
+
+                Set<Path> changed = new LinkedHashSet<>();
+                for (; key != null; key = service.poll()) {
+                    Path directory = directories.get(key);
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() != StandardWatchEventKinds.OVERFLOW && directory != null)
+                            changed.add(directory.resolve((Path) event.context()));
+                    }
+                    key.reset();
+                }
+
+                try {
+                    reload(changed);
+                } catch (RuntimeException e) {
+                    System.out.println("Unable to reload changed files: " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            //server stopping
+        }
+    }
+
+    private void reload(Set<Path> changed) {
+        //a config change recompiles every structure anyway
+        if (configFile != null && changed.contains(configFile)) {
+            ShipwreckConfig.reload(configFile.toFile());
+            StructureRegistry.loadTemplates();
+            System.out.println("Reloaded shipwrecks config");
+        } else if (changed.contains(new File(StructureRegistry.STRUCTURE_FOLDER, StructurePack.FILE_NAME).toPath().toAbsolutePath().normalize())) {
+            //a new pack can change any structure
+            StructureRegistry.loadTemplates();
+            System.out.println("Reloaded structure pack");
+        } else {
+            Set<String> structures = new LinkedHashSet<>();
+            for (Path path : changed) {
+                if (isIn(path, StructureRegistry.STRUCTURE_FOLDER)) {
+                    String name = path.getFileName().toString();
+                    if (name.endsWith(".json"))
+                        structures.add(name.substring(0, name.length() - ".json".length()));
+                    else if (name.endsWith(StructureCodec.EXTENSION))
+                        structures.add(name.substring(0, name.length() - StructureCodec.EXTENSION.length()));
+                }
+            }
+            for (String name : structures) {
+                if (StructureRegistry.reloadTemplate(name))
+                    System.out.println("Reloaded structure " + name);
+            }
+        }
+
+        for (Path path : changed) {
+            if (isIn(path, LootRegistry.LOOT_FOLDER)) {
+                LootRegistry.loadTables();
+                System.out.println("Reloaded loot tables");
+                break;
+            }
+        }
+    }
+
+    private static boolean isIn(Path path, File directory) {
+        return path.getParent() != null && path.getParent().equals(directory.toPath().toAbsolutePath().normalize());
+    }
+}
@@ -0,0 +1,116 @@
+package winslow.shipwrecks;
+
+import net.minecraft.block.state.IBlockState;
+
+import java.util.Arrays;
+
+/*
+ * Sparse block buffer keyed by packed position (BlockPos.toLong). Every pass of a wreck writes into it and later
+ * writes replace earlier ones, so once the wreck is composed each position holds its final state and is written to
+ * the world once. Open addressing over primitive arrays keeps it to two array reads per lookup and no boxing.
+ * Not thread safe.
+ */
+final class VoxelBuffer {
+    private static final long EMPTY_KEY = Long.MIN_VALUE; //BlockPos.toLong of x = -2^25, far outside the world border
+
+    private long[] keys;
+    private IBlockState[] states; //null for a removed position
+    private int used = 0; //slots with a key, including removed positions
+    private int size = 0; //positions holding a state
+
+    VoxelBuffer() {
+        this(256);
+    }
+
+    VoxelBuffer(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(16, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        states = new IBlockState[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+    }
+
+    private static int hash(long key) {
+        key *= 0x9E3779B97F4A7C15L;
+        return (int) (key ^ (key >>> 32));
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY_KEY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    /*
+     * Set the state at a position, replacing anything already there
+     */
+    void put(long pos, IBlockState state) {
+        int slot = slot(pos);
+        if (keys[slot] == EMPTY_KEY) {
+            keys[slot] = pos;
+            ++used;
+        }
+        if (states[slot] == null)
+            ++size;
+        states[slot] = state;
+
+        if (used * 2 > keys.length)
+            resize();
+    }
+
+    /*
+     * Get the state at a position, null if nothing is set there
+     */
+    IBlockState get(long pos) {
+        return states[slot(pos)];
+    }
+
+    /*
+     * Clear a position so the world keeps whatever block it already has there
+     */
+    void remove(long pos) {
+        int slot = slot(pos);
+        if (states[slot] != null) {
+            states[slot] = null;
+            --size;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /*
+     * Copy the positions and states that are set into the passed arrays, which must hold size() entries
+     */
+    void drainTo(long[] positions, IBlockState[] out) {
+        int count = 0;
+        for (int i = 0; i < keys.length; ++i) {
+            if (states[i] != null) {
+                positions[count] = keys[i];
+                out[count] = states[i];
+                ++count;
+            }
+        }
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        IBlockState[] oldStates = states;
+        keys = new long[oldKeys.length * 2];
+        states = new IBlockState[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY_KEY);
+        used = 0;
+
+        //removed positions are dropped here
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldStates[i] != null) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                states[slot] = oldStates[i];
+                ++used;
+            }
+        }
+    }
+}
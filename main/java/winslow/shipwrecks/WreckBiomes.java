@@ -0,0 +1,77 @@
+package winslow.shipwrecks;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.BiomeProvider;
+import net.minecraftforge.common.BiomeDictionary;
+import net.minecraftforge.fml.common.registry.ForgeRegistries;
+
+/*
+ * Which kind of wreck each biome can hold, looked up by biome id. The table is built once from the BiomeDictionary
+ * types, so modded oceans and beaches work without matching on biome names.
+ */
+class WreckBiomes {
+    enum Category {
+        NONE,
+        OCEAN,
+        BEACH
+    }
+
+    private static volatile Category[] categories;
+
+    /*
+     * Build the table from every registered biome. Biomes must be registered before this is called.
+     */
+    static synchronized void loadCategories() {
+        Category[] table = new Category[256];
+        for (Biome biome : ForgeRegistries.BIOMES.getValuesCollection()) {
+            int id = Biome.getIdForBiome(biome);
+            if (id >= 0 && id < table.length)
+                table[id] = classify(biome);
+        }
+        categories = table;
+    }
+
+    private static Category classify(Biome biome) {
+        if (BiomeDictionary.hasType(biome, BiomeDictionary.Type.OCEAN))
+            return Category.OCEAN;
+        if (BiomeDictionary.hasType(biome, BiomeDictionary.Type.BEACH))
+            return Category.BEACH;
+        return Category.NONE;
+    }
+
+    /*
+     * Get the wreck category for a biome
+     */
+    static Category getCategory(Biome biome) {
+        if (categories == null)
+            loadCategories();
+
+        int id = Biome.getIdForBiome(biome);
+        Category category = id >= 0 && id < categories.length ? categories[id] : null;
+        return category == null ? classify(biome) : category; //registered after the table was built
+    }
+
+    /*
+     * Check every biome under a square footprint centered on pos. Ocean wrecks need ocean all the way across,
+     * beach wrecks can hang over into the water but not onto land. Samples the biome provider at its generation
+     * resolution (4x4 blocks), so no chunks are loaded.
+     */
+    static boolean isFootprintSuitable(BiomeProvider provider, BlockPos pos, int radius, Category category) {
+        if (category == Category.NONE)
+            return false;
+
+        int minX = (pos.getX() - radius) >> 2;
+        int minZ = (pos.getZ() - radius) >> 2;
+        int width = ((pos.getX() + radius) >> 2) - minX + 1;
+        int depth = ((pos.getZ() + radius) >> 2) - minZ + 1;
+
+        Biome[] biomes = provider.getBiomesForGeneration(null, minX, minZ, width, depth);
+        for (int i = 0; i < width * depth; ++i) {
+            Category found = getCategory(biomes[i]);
+            if (found != category && !(category == Category.BEACH && found == Category.OCEAN))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,41 @@
+package winslow.shipwrecks;
+
+/*
+ * Java Flight Recorder events around each generation phase, so wreck work shows up by name in a recording instead of
+ * as time under IWorldGenerator.generate. Each event carries the structure, orientation (variant index, -1 if not
+ * chosen yet), chunk and number of blocks. Loot events carry the loot pool as the structure.
+ * The events themselves are in JfrEvents, which is never loaded on a JVM without jdk.jfr. When the JVM has JFR but
+ * isn't recording a phase, begin returns null after a flag check without allocating anything and commit does nothing,
+ * so they stay on all the time.
+ */
+final class WreckEvents {
+    enum Phase {
+        SURFACE, SEAFLOOR, PLAN, SECTIONS, RANDOM_SECTIONS, CHANCE_SECTIONS, DAMAGE, PLACEMENT, LOOT
+    }
+
+    private static final boolean AVAILABLE = isAvailable();
+
+    private WreckEvents() {
+    }
+
+    private static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /*
+     * Start timing a phase, pass the result to commit. Null when the phase isn't being recorded.
+     */
+    static Object begin(Phase phase) {
+        return AVAILABLE ? JfrEvents.begin(phase) : null;
+    }
+
+    static void commit(Object event, String structure, int orientation, int chunkX, int chunkZ, int blocks) {
+        if (event != null)
+            JfrEvents.commit(event, structure, orientation, chunkX, chunkZ, blocks);
+    }
+}
@@ -0,0 +1,184 @@
+package winslow.shipwrecks;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Spatial hash of wreck hull footprints for one world, used to keep new wrecks from landing on top of earlier ones.
+ * Footprints are bucketed into 32x32 block cells, so a check only looks at the few cells a hull covers.
+ * Holds wrecks that are planned but not yet placed, plus placed wrecks, which are read from the wreck index the first
+ * time a check touches their region. Kept in memory only, the index is the saved copy.
+ */
+class WreckFootprints {
+    private static final int CELL_SHIFT = 5; //32 blocks
+    private static final int REGION_SHIFT = 9; //matches WreckIndex
+    static final int MAX_RADIUS = 64; //no hull reaches further than this from its origin
+    private static final Map<Integer, WreckFootprints> worlds = new HashMap<>();
+
+    private final World world;
+    private final WreckIndex index;
+    private final Map<Long, List<StructureBoundingBox>> cells = new HashMap<>();
+    private final Map<Long, StructureBoundingBox> planned = new HashMap<>(); //keyed by the wreck's x/z
+    private final Set<Long> loadedRegions = new HashSet<>();
+
+    private WreckFootprints(World world, WreckIndex index) {
+        this.world = world;
+        this.index = index;
+    }
+
+    /*
+     * Get the footprints for a world. Server thread only.
+     */
+    static WreckFootprints get(World world) {
+        int dimension = world.provider.getDimension();
+        WreckFootprints footprints = worlds.get(dimension);
+        if (footprints == null || footprints.world != world) {
+            footprints = new WreckFootprints(world, WreckIndex.get(world));
+            worlds.put(dimension, footprints);
+        }
+        return footprints;
+    }
+
+    /*
+     * Footprints over a wreck index without a world, for RegionStamper. Not shared, the caller keeps it.
+     */
+    static WreckFootprints create(WreckIndex index) {
+        return new WreckFootprints(null, index);
+    }
+
+    /*
+     * Forget a world's footprints when it unloads
+     */
+    static void unload(World world) {
+        WreckFootprints footprints = worlds.get(world.provider.getDimension());
+        if (footprints != null && footprints.world == world)
+            worlds.remove(world.provider.getDimension());
+    }
+
+    /*
+     * The square a wreck's hull covers, full height since wrecks stacked vertically collide too
+     */
+    static StructureBoundingBox getFootprint(BlockPos pos, int radius) {
+        return new StructureBoundingBox(pos.getX() - radius, 0, pos.getZ() - radius, pos.getX() + radius, 255, pos.getZ() + radius);
+    }
+
+    private static long key(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    /*
+     * Check if a footprint overlaps any planned or placed wreck
+     */
+    boolean intersects(StructureBoundingBox box) {
+        //placed wrecks are stored by origin, so load the regions any wreck overlapping this box could be stored in
+        for (int regionX = (box.minX - MAX_RADIUS) >> REGION_SHIFT; regionX <= (box.maxX + MAX_RADIUS) >> REGION_SHIFT; ++regionX)
+            for (int regionZ = (box.minZ - MAX_RADIUS) >> REGION_SHIFT; regionZ <= (box.maxZ + MAX_RADIUS) >> REGION_SHIFT; ++regionZ)
+                loadRegion(regionX, regionZ);
+
+        for (int cellX = box.minX >> CELL_SHIFT; cellX <= box.maxX >> CELL_SHIFT; ++cellX) {
+            for (int cellZ = box.minZ >> CELL_SHIFT; cellZ <= box.maxZ >> CELL_SHIFT; ++cellZ) {
+                List<StructureBoundingBox> boxes = cells.get(key(cellX, cellZ));
+                if (boxes == null)
+                    continue;
+                for (StructureBoundingBox other : boxes)
+                    if (other.intersectsWith(box))
+                        return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Hold a footprint for a wreck that has been submitted to the planner
+     */
+    void reserve(BlockPos pos, StructureBoundingBox box) {
+        StructureBoundingBox old = planned.put(key(pos.getX(), pos.getZ()), box);
+        if (old != null)
+            remove(old);
+        add(box);
+    }
+
+    /*
+     * Check if a wreck at pos has been submitted to the planner and not placed yet
+     */
+    boolean isPlanned(BlockPos pos) {
+        return planned.containsKey(key(pos.getX(), pos.getZ()));
+    }
+
+    /*
+     * Swap a planned wreck's reservation for its placed footprint
+     */
+    void place(WreckRecord record) {
+        StructureBoundingBox reserved = planned.remove(key(record.origin.getX(), record.origin.getZ()));
+        if (reserved != null)
+            remove(reserved);
+
+        //regions that haven't been loaded yet will read it from the index
+        if (loadedRegions.contains(key(record.origin.getX() >> REGION_SHIFT, record.origin.getZ() >> REGION_SHIFT)))
+            add(getFootprint(record));
+    }
+
+    /*
+     * Drop the reservation of a planned wreck that won't be placed
+     */
+    void release(BlockPos pos) {
+        StructureBoundingBox reserved = planned.remove(key(pos.getX(), pos.getZ()));
+        if (reserved != null)
+            remove(reserved);
+    }
+
+    private void loadRegion(int regionX, int regionZ) {
+        if (!loadedRegions.add(key(regionX, regionZ)))
+            return;
+
+        int minX = regionX << REGION_SHIFT;
+        int minZ = regionZ << REGION_SHIFT;
+        int size = (1 << REGION_SHIFT) - 1;
+        for (WreckRecord record : index.getWrecksInRange(minX, minZ, minX + size, minZ + size))
+            add(getFootprint(record));
+    }
+
+    /*
+     * Hull footprint of a placed wreck, its whole bounding box if its structure isn't loaded any more
+     */
+    private static StructureBoundingBox getFootprint(WreckRecord record) {
+        StructureTemplate template = StructureRegistry.getTemplate(record.structure);
+        if (template == null)
+            return new StructureBoundingBox(record.bounds.minX, 0, record.bounds.minZ, record.bounds.maxX, 255, record.bounds.maxZ);
+        return getFootprint(record.origin, template.radius);
+    }
+
+    private void add(StructureBoundingBox box) {
+        for (int cellX = box.minX >> CELL_SHIFT; cellX <= box.maxX >> CELL_SHIFT; ++cellX) {
+            for (int cellZ = box.minZ >> CELL_SHIFT; cellZ <= box.maxZ >> CELL_SHIFT; ++cellZ) {
+                List<StructureBoundingBox> boxes = cells.get(key(cellX, cellZ));
+                if (boxes == null) {
+                    boxes = new ArrayList<>(2);
+                    cells.put(key(cellX, cellZ), boxes);
+                }
+                boxes.add(box);
+            }
+        }
+    }
+
+    private void remove(StructureBoundingBox box) {
+        for (int cellX = box.minX >> CELL_SHIFT; cellX <= box.maxX >> CELL_SHIFT; ++cellX) {
+            for (int cellZ = box.minZ >> CELL_SHIFT; cellZ <= box.maxZ >> CELL_SHIFT; ++cellZ) {
+                List<StructureBoundingBox> boxes = cells.get(key(cellX, cellZ));
+                if (boxes == null)
+                    continue;
+                boxes.remove(box); //StructureBoundingBox doesn't override equals, so this removes this exact box
+                if (boxes.isEmpty())
+                    cells.remove(key(cellX, cellZ));
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package winslow.shipwrecks;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagIntArray;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldSavedData;
+import net.minecraftforge.common.util.Constants;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/*
+ * Per-world spatial index of every wreck that has been placed. Wrecks are bucketed by 512x512 block region and
+ * each region is its own saved data file, loaded the first time a query touches it. Within a region wrecks are
+ * sorted by x then z so range and nearest queries only walk the wrecks that can match. This top level file only
+ * keeps the set of regions that contain wrecks.
+ */
+public class WreckIndex extends WorldSavedData {
+    private static final String DATA_NAME = ShipwrecksMain.MODID + "_index";
+    private static final int REGION_SHIFT = 9; //512 blocks, the same as a region file
+
+    private final Set<Long> regions = new HashSet<>();
+    private MapStorage storage;
+
+    public WreckIndex(String name) {
+        super(name);
+    }
+
+    /*
+     * Get the wreck index for a world
+     */
+    public static WreckIndex get(World world) {
+        return get(world.getPerWorldStorage());
+    }
+
+    /*
+     * Get the wreck index kept in a world's data storage, for tools that work on a save without a server
+     */
+    static WreckIndex get(MapStorage storage) {
+        WreckIndex data = (WreckIndex) storage.getOrLoadData(WreckIndex.class, DATA_NAME);
+        if (data == null) {
+            data = new WreckIndex(DATA_NAME);
+            storage.setData(DATA_NAME, data);
+        }
+        data.storage = storage;
+        return data;
+    }
+
+    /*
+     * The wrecks in one region, sorted by (x, z)
+     */
+    public static class Region extends WorldSavedData {
+        private final NavigableMap<Long, WreckRecord> wrecks = new TreeMap<>();
+
+        public Region(String name) {
+            super(name);
+        }
+
+        @Override
+        public void readFromNBT(NBTTagCompound nbt) {
+            wrecks.clear();
+            NBTTagList list = nbt.getTagList("wrecks", Constants.NBT.TAG_COMPOUND);
+            for (int i = 0; i < list.tagCount(); ++i) {
+                WreckRecord record = WreckRecord.readFromNBT(list.getCompoundTagAt(i));
+                wrecks.put(sortKey(record.origin.getX(), record.origin.getZ()), record);
+            }
+        }
+
+        @Override
+        public NBTTagCompound writeToNBT(NBTTagCompound nbt) {
+            NBTTagList list = new NBTTagList();
+            for (WreckRecord record : wrecks.values())
+                list.appendTag(record.writeToNBT());
+            nbt.setTag("wrecks", list);
+            return nbt;
+        }
+    }
+
+    /*
+     * Orders by x then z. z has its sign bit flipped so negative z sorts before positive z within an x.
+     */
+    private static long sortKey(int x, int z) {
+        return ((long) x << 32) | ((z ^ Integer.MIN_VALUE) & 0xFFFFFFFFL);
+    }
+
+    private static long regionKey(int regionX, int regionZ) {
+        return ((long) regionX << 32) | (regionZ & 0xFFFFFFFFL);
+    }
+
+    /*
+     * Load a region's wrecks, null if no wreck has ever been placed in it
+     */
+    private Region getRegion(int regionX, int regionZ, boolean create) {
+        long key = regionKey(regionX, regionZ);
+        if (!regions.contains(key) && !create)
+            return null;
+
+        String name = DATA_NAME + "_" + regionX + "_" + regionZ;
+        Region region = (Region) storage.getOrLoadData(Region.class, name);
+        if (region == null) {
+            region = new Region(name);
+            storage.setData(name, region);
+        }
+        if (regions.add(key))
+            markDirty();
+        return region;
+    }
+
+    /*
+     * The saved data holding one region's wrecks, null if none were ever placed in it. For RegionStamper, which
+     * writes regions out itself as it goes instead of waiting for a world save.
+     */
+    WorldSavedData getRegionData(int regionX, int regionZ) {
+        return getRegion(regionX, regionZ, false);
+    }
+
+    /*
+     * Record a placed wreck
+     */
+    void add(WreckRecord record) {
+        Region region = getRegion(record.origin.getX() >> REGION_SHIFT, record.origin.getZ() >> REGION_SHIFT, true);
+        region.wrecks.put(sortKey(record.origin.getX(), record.origin.getZ()), record);
+        region.markDirty();
+    }
+
+    /*
+     * Mark a wreck chest as opened. Returns false if the position isn't a recorded chest.
+     */
+    boolean setChestStatus(BlockPos chest, byte status) {
+        //a chest can be offset from its wreck's origin, so check the regions its wreck could be recorded in
+        for (WreckRecord record : getWrecksInRange(chest.getX() - 64, chest.getZ() - 64, chest.getX() + 64, chest.getZ() + 64)) {
+            int index = record.findChest(chest);
+            if (index >= 0) {
+                record.setChestStatus(index, status);
+                getRegion(record.origin.getX() >> REGION_SHIFT, record.origin.getZ() >> REGION_SHIFT, false).markDirty();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * Get every wreck whose origin is inside the passed x/z range (inclusive)
+     */
+    public List<WreckRecord> getWrecksInRange(int minX, int minZ, int maxX, int maxZ) {
+        List<WreckRecord> found = new ArrayList<>();
+        for (int regionX = minX >> REGION_SHIFT; regionX <= maxX >> REGION_SHIFT; ++regionX) {
+            for (int regionZ = minZ >> REGION_SHIFT; regionZ <= maxZ >> REGION_SHIFT; ++regionZ) {
+                Region region = getRegion(regionX, regionZ, false);
+                if (region == null)
+                    continue;
+
+                for (WreckRecord record : region.wrecks.subMap(sortKey(minX, minZ), true, sortKey(maxX, maxZ), true).values()) {
+                    int z = record.origin.getZ();
+                    if (z >= minZ && z <= maxZ)
+                        found.add(record);
+                }
+            }
+        }
+        return found;
+    }
+
+    /*
+     * Get the closest wreck (of any type if structure is null) within maxDistance blocks, null if there isn't one
+     */
+    public WreckRecord getNearest(BlockPos pos, String structure, int maxDistance) {
+        WreckRecord nearest = null;
+        long nearestDist = (long) maxDistance * maxDistance;
+        int centerX = pos.getX() >> REGION_SHIFT;
+        int centerZ = pos.getZ() >> REGION_SHIFT;
+        int maxRing = (maxDistance >> REGION_SHIFT) + 1;
+
+        for (int ring = 0; ring <= maxRing; ++ring) {
+            //every region in this ring is at least (ring - 1) regions away
+            long ringDist = (long) Math.max(0, ring - 1) << REGION_SHIFT;
+            if (ringDist * ringDist > nearestDist)
+                break;
+
+            for (int dx = -ring; dx <= ring; ++dx) {
+                for (int dz = -ring; dz <= ring; ++dz) {
+                    if (Math.abs(dx) != ring && Math.abs(dz) != ring)
+                        continue;
+                    Region region = getRegion(centerX + dx, centerZ + dz, false);
+                    if (region == null)
+                        continue;
+
+                    //walk outward in x from the position, stopping once x alone is further than the best so far
+                    long key = sortKey(pos.getX(), pos.getZ());
+                    for (int side = 0; side < 2; ++side) {
+                        Map<Long, WreckRecord> half = side == 0 ? region.wrecks.tailMap(key, true)
+                                : region.wrecks.headMap(key, false).descendingMap();
+                        for (WreckRecord record : half.values()) {
+                            long xDist = record.origin.getX() - pos.getX();
+                            if (xDist * xDist > nearestDist)
+                                break;
+                            if (structure != null && !structure.equals(record.structure))
+                                continue;
+                            long zDist = record.origin.getZ() - pos.getZ();
+                            long dist = xDist * xDist + zDist * zDist;
+                            if (dist <= nearestDist) {
+                                nearest = record;
+                                nearestDist = dist;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    @Override
+    public void readFromNBT(NBTTagCompound nbt) {
+        regions.clear();
+        NBTTagList list = nbt.getTagList("regions", Constants.NBT.TAG_INT_ARRAY);
+        for (int i = 0; i < list.tagCount(); ++i) {
+            int[] region = list.getIntArrayAt(i);
+            if (region.length == 2)
+                regions.add(regionKey(region[0], region[1]));
+        }
+    }
+
+    @Override
+    public NBTTagCompound writeToNBT(NBTTagCompound nbt) {
+        NBTTagList list = new NBTTagList();
+        for (long key : regions)
+            list.appendTag(new NBTTagIntArray(new int[]{(int) (key >> 32), (int) key}));
+        nbt.setTag("regions", list);
+        return nbt;
+    }
+}
@@ -0,0 +1,147 @@
+package winslow.shipwrecks;
+
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.World;
+import net.minecraft.world.biome.BiomeProvider;
+
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Wreck placement as a pure function of the world seed and the grid cell. Wrecks can only spawn from the first
+ * chunk of each maxDist x maxDist chunk cell; everything about the wreck in that cell (offset, structure, the
+ * seed its plan is built from) comes from a Random seeded with the world seed and cell coordinates, like vanilla
+ * structures. Because biomes are read from the biome provider, wrecks can be located without loading chunks.
+ */
+public class WreckLocator {
+    private static final long SALT = 14357617L;
+
+    /*
+     * Where the wreck for one cell goes and what it is
+     */
+    public static final class WreckSite {
+        public final int cellX;
+        public final int cellZ;
+        public final BlockPos pos; //y is 0, the seafloor is found when the wreck is generated
+        public final String structure;
+        final WreckBiomes.Category category;
+        final long planSeed;
+
+        private WreckSite(int cellX, int cellZ, BlockPos pos, String structure, WreckBiomes.Category category, long planSeed) {
+            this.cellX = cellX;
+            this.cellZ = cellZ;
+            this.pos = pos;
+            this.structure = structure;
+            this.category = category;
+            this.planSeed = planSeed;
+        }
+    }
+
+    /*
+     * Check if wreck can spawn from this chunk based on the max distance set in config
+     */
+    static boolean isAnchorChunk(ShipwreckConfig.Snapshot config, int chunkX, int chunkZ) {
+        int maxDist = config.maxDist;
+        //wrecks can spawn only on (maxDist, Y, maxDist) nodes) but get offset a random distance from there
+        return Math.floorMod(chunkX, maxDist) == 0 && Math.floorMod(chunkZ, maxDist) == 0;
+    }
+
+    /*
+     * Get the wreck for a grid cell, null if the cell is not in an ocean or beach, no structure was chosen or the
+     * chosen structure doesn't fit the biomes around it
+     */
+    public static WreckSite getSite(World world, int cellX, int cellZ) {
+        return getSite(world, ShipwreckConfig.get(), cellX, cellZ);
+    }
+
+    static WreckSite getSite(World world, ShipwreckConfig.Snapshot config, int cellX, int cellZ) {
+        int max = config.maxDist;
+        int min = config.minDist;
+
+        //center of the cell's anchor chunk
+        BlockPos pos = new BlockPos(cellX * max * 16 + 8, 0, cellZ * max * 16 + 8);
+
+        BiomeProvider provider = world.getBiomeProvider();
+        WreckBiomes.Category category = WreckBiomes.getCategory(provider.getBiome(pos));
+        if (category == WreckBiomes.Category.NONE) //only generate ships in oceans and on beaches
+            return null;
+
+        Random random = new Random(getCellSeed(world.getSeed(), cellX, cellZ));
+
+        //Random offset from chunk between min and max from center of chunk
+        double maxOffset = ((double) max - (double) min) / 2.0;
+        int newX = (int) ((random.nextDouble() * maxOffset - 2 * random.nextDouble() * maxOffset) * 16);
+        int newZ = (int) ((random.nextDouble() * maxOffset - 2 * random.nextDouble() * maxOffset) * 16);
+        pos = pos.add(newX, 0, newZ);
+
+        String structure = getStructureName(config, category == WreckBiomes.Category.OCEAN, random);
+        if (structure == null)
+            return null;
+
+        //reject spots where part of the hull would end up on land
+        StructureTemplate template = StructureRegistry.getTemplate(structure);
+        if (template == null || !WreckBiomes.isFootprintSuitable(provider, pos, template.radius, category))
+            return null;
+
+        return new WreckSite(cellX, cellZ, pos, structure, category, random.nextLong());
+    }
+
+    /*
+     * Find the nearest wreck of a structure type (any type if structure is null) by walking the grid cells around
+     * a position in rings, up to radius cells away. No chunks are loaded or generated. Returns null if none was found.
+     */
+    public static WreckSite locate(World world, BlockPos from, String structure, int radius) {
+        ShipwreckConfig.Snapshot config = ShipwreckConfig.get();
+        int cellSize = config.maxDist * 16;
+        int centerX = Math.floorDiv(from.getX(), cellSize);
+        int centerZ = Math.floorDiv(from.getZ(), cellSize);
+
+        WreckSite nearest = null;
+        double nearestDist = Double.MAX_VALUE;
+
+        for (int ring = 0; ring <= radius; ++ring) {
+            //offsets can move a wreck up to a cell from its anchor, so rings two further out can still be closer
+            if (nearest != null && (ring - 2) * (double) cellSize > Math.sqrt(nearestDist))
+                break;
+
+            for (int dx = -ring; dx <= ring; ++dx) {
+                for (int dz = -ring; dz <= ring; ++dz) {
+                    if (Math.abs(dx) != ring && Math.abs(dz) != ring) //only the edge of the ring
+                        continue;
+
+                    WreckSite site = getSite(world, config, centerX + dx, centerZ + dz);
+                    if (site == null || (structure != null && !structure.equals(site.structure)))
+                        continue;
+
+                    double dist = site.pos.distanceSq(from.getX(), 0, from.getZ());
+                    if (dist < nearestDist) {
+                        nearest = site;
+                        nearestDist = dist;
+                    }
+                }
+            }
+        }
+        return nearest;
+    }
+
+    /*
+     * Seed for a grid cell, mixed the same way World.setRandomSeed mixes chunk coordinates
+     */
+    static long getCellSeed(long worldSeed, int cellX, int cellZ) {
+        return (long) cellX * 341873128712L + (long) cellZ * 132897987541L + worldSeed + SALT;
+    }
+
+    /*
+     * Get the correct name for the structure to generate based on the corresponding weight
+     *
+     * parameters: isOceanBiome, true = is an ocean biome, false = is not (it's a beach biome)
+     */
+    static String getStructureName(ShipwreckConfig.Snapshot config, boolean isOceanBiome, Random random) {
+        //get the correct weights for structures based on the biome
+        int index = config.getSampler(isOceanBiome).sample(random);
+        List<String> names = config.names;
+        if (index < 0 || index >= names.size()) //every weight is 0, or more weights than names
+            return null;
+        return names.get(index);
+    }
+}
@@ -0,0 +1,78 @@
+package winslow.shipwrecks;
+
+import net.minecraft.inventory.IInventory;
+import net.minecraft.item.Item;
+import net.minecraft.item.ItemStack;
+
+import java.util.Random;
+
+/*
+ * An immutable, compiled loot pool file. Items are resolved once into prototype stacks and the weights into
+ * alias samplers, so filling a chest only samples, copies stacks and sets the count. See LootData for the format.
+ */
+final class WreckLootTable {
+    final String name;
+    private final Pool[] pools;
+
+    private WreckLootTable(String name, Pool[] pools) {
+        this.name = name;
+        this.pools = pools;
+    }
+
+    private static final class Pool {
+        final LootData.Pool data;
+        final ItemStack[] prototypes; //null for unknown items, which have a weight of 0 in the sampler
+        final AliasSampler sampler;
+
+        private Pool(LootData.Pool data, ItemStack[] prototypes, AliasSampler sampler) {
+            this.data = data;
+            this.prototypes = prototypes;
+            this.sampler = sampler;
+        }
+    }
+
+    /*
+     * Put this table's items in random slots of the inventory
+     */
+    void fill(IInventory inventory, Random random) {
+        long start = WreckMetrics.start();
+        int slots = inventory.getSizeInventory();
+        for (Pool pool : pools) {
+            int rolls = pool.data.getRolls(random);
+            for (int i = 0; i < rolls; ++i) {
+                int idx = pool.sampler.sample(random);
+                if (idx < 0)
+                    break;
+
+                ItemStack item = pool.prototypes[idx].copy();
+                item.setCount(pool.data.getCount(idx, random));
+                inventory.setInventorySlotContents(random.nextInt(slots), item);
+            }
+        }
+        WreckMetrics.record(WreckMetrics.Timer.LOOT_FILL, name, start);
+        WreckMetrics.increment(WreckMetrics.Counter.CHESTS_FILLED, name);
+    }
+
+    /*
+     * Compile raw loot data. Items must already be registered, unknown items are never picked.
+     */
+    static WreckLootTable compile(String name, LootData data) {
+        Pool[] pools = new Pool[data.pools.length];
+        for (int i = 0; i < pools.length; ++i) {
+            LootData.Pool pool = data.pools[i];
+            ItemStack[] prototypes = new ItemStack[pool.items.length];
+            int[] weights = pool.weights.clone();
+            for (int j = 0; j < prototypes.length; ++j) {
+                Item item = Item.getByNameOrId(pool.items[j]);
+                if (item == null) { //unknown item, skip it rather than lose the whole table
+                    System.out.println("Unknown item " + pool.items[j] + " in loot table " + name);
+                    weights[j] = 0;
+                    continue;
+                }
+                prototypes[j] = new ItemStack(item, 1, pool.data[j]);
+            }
+            pools[i] = new Pool(pool, prototypes, new AliasSampler(weights));
+        }
+        return new WreckLootTable(name, pools);
+    }
+}
@@ -0,0 +1,215 @@
+package winslow.shipwrecks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Counters and latency histograms for wreck generation, kept per structure (per loot pool for loot fills) and
+ * shared by the server and planner threads. Recording is a few adds on striped counters, so it stays on all the time.
+ * Shown by /shipwrecks stats and written to ./shipwrecks_winslow_stats.txt every few minutes (see the Stats config section).
+ */
+final class WreckMetrics {
+    static final String GLOBAL = "all"; //for events that don't belong to one structure
+    private static final File DUMP_FILE = new File("./" + ShipwrecksMain.MODID + "_stats.txt");
+
+    enum Timer {
+        TEMPLATE_LOAD("template load"), PLAN("plan"), BLOCK_WRITE("block write"), LOOT_FILL("loot fill"), SEAFLOOR("seafloor");
+
+        private final String label;
+
+        Timer(String label) {
+            this.label = label;
+        }
+    }
+
+    enum Counter {
+        WRECKS("wrecks"), BLOCKS("blocks"), CHESTS_FILLED("chests filled"), SITES_REJECTED("sites rejected"),
+        OVERLAPS_REJECTED("overlaps rejected"), DOWNSIZED("downsized"), DEFERRED_SITES("deferred sites");
+
+        private final String label;
+
+        Counter(String label) {
+            this.label = label;
+        }
+    }
+
+    private static final ConcurrentMap<String, Stats> stats = new ConcurrentHashMap<>();
+    private static volatile long since = System.currentTimeMillis();
+    private static ScheduledExecutorService dumper;
+    private static long lastDump;
+
+    private WreckMetrics() {
+    }
+
+    /*
+     * Latency histogram with one bucket per power of two nanoseconds
+     */
+    private static final class Histogram {
+        private final AtomicLongArray buckets = new AtomicLongArray(64);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        void add(long nanos) {
+            nanos = Math.max(nanos, 1);
+            buckets.incrementAndGet(63 - Long.numberOfLeadingZeros(nanos));
+            count.increment();
+            total.add(nanos);
+            max.accumulate(nanos);
+        }
+
+        /*
+         * Upper bound of the bucket holding the fraction of samples, so p99 reads as "99% took at most this long"
+         */
+        long getPercentile(double fraction, long samples) {
+            long target = (long) Math.ceil(samples * fraction);
+            long seen = 0;
+            for (int i = 0; i < 64; ++i) {
+                seen += buckets.get(i);
+                if (seen >= target)
+                    return Math.min(i >= 62 ? Long.MAX_VALUE : (2L << i) - 1, max.get());
+            }
+            return max.get();
+        }
+    }
+
+    private static final class Stats {
+        private final LongAdder[] counters = new LongAdder[Counter.values().length];
+        private final Histogram[] timers = new Histogram[Timer.values().length];
+
+        Stats() {
+            for (int i = 0; i < counters.length; ++i)
+                counters[i] = new LongAdder();
+            for (int i = 0; i < timers.length; ++i)
+                timers[i] = new Histogram();
+        }
+    }
+
+    private static Stats get(String name) {
+        return stats.computeIfAbsent(name == null ? GLOBAL : name, key -> new Stats());
+    }
+
+    /*
+     * Start timing, pass the result to record
+     */
+    static long start() {
+        return System.nanoTime();
+    }
+
+    static void record(Timer timer, String name, long start) {
+        get(name).timers[timer.ordinal()].add(System.nanoTime() - start);
+    }
+
+    static void increment(Counter counter, String name) {
+        get(name).counters[counter.ordinal()].increment();
+    }
+
+    static void add(Counter counter, String name, long amount) {
+        get(name).counters[counter.ordinal()].add(amount);
+    }
+
+    static void reset() {
+        stats.clear();
+        since = System.currentTimeMillis();
+    }
+
+    /*
+     * Everything recorded since startup or the last reset, one line per structure and one per timer that has samples
+     */
+    static List<String> getReport() {
+        List<String> lines = new ArrayList<>();
+        long minutes = (System.currentTimeMillis() - since) / 60000;
+        lines.add("Shipwreck stats over the last " + (minutes / 60) + "h " + (minutes % 60) + "m");
+
+        for (Map.Entry<String, Stats> entry : new TreeMap<>(stats).entrySet()) {
+            Stats stat = entry.getValue();
+            StringBuilder line = new StringBuilder(entry.getKey()).append(':');
+            boolean first = true;
+            for (Counter counter : Counter.values()) {
+                long value = stat.counters[counter.ordinal()].sum();
+                if (value == 0)
+                    continue;
+                line.append(first ? " " : ", ").append(value).append(' ').append(counter.label);
+                first = false;
+            }
+            lines.add(line.toString());
+
+            for (Timer timer : Timer.values()) {
+                Histogram histogram = stat.timers[timer.ordinal()];
+                long count = histogram.count.sum();
+                if (count == 0)
+                    continue;
+                lines.add(String.format("  %s: %d, avg %s, p50 %s, p99 %s, max %s", timer.label, count,
+                        formatNanos(histogram.total.sum() / count), formatNanos(histogram.getPercentile(0.5, count)),
+                        formatNanos(histogram.getPercentile(0.99, count)), formatNanos(histogram.max.get())));
+            }
+        }
+        return lines;
+    }
+
+    private static String formatNanos(long nanos) {
+        if (nanos < 1000000)
+            return String.format("%.1f us", nanos / 1e3);
+        return String.format("%.2f ms", nanos / 1e6);
+    }
+
+    /*
+     * Write the report every few minutes from a background thread while the server runs, 0 minutes in the config
+     * turns it off. Checked once a minute so a config reload takes effect.
+     */
+    static synchronized void startDumps() {
+        if (dumper != null)
+            return;
+        lastDump = System.currentTimeMillis();
+        dumper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Shipwreck Stats");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleWithFixedDelay(WreckMetrics::dumpIfDue, 1, 1, TimeUnit.MINUTES);
+    }
+
+    static synchronized void stopDumps() {
+        if (dumper == null)
+            return;
+        dumper.shutdown();
+        dumper = null;
+        if (ShipwreckConfig.getStatsMinutes() > 0)
+            dump();
+    }
+
+    private static void dumpIfDue() {
+        int interval = ShipwreckConfig.getStatsMinutes();
+        if (interval > 0 && System.currentTimeMillis() - lastDump >= interval * 60000L) {
+            lastDump = System.currentTimeMillis();
+            dump();
+        }
+    }
+
+    private static void dump() {
+        List<String> lines = new ArrayList<>();
+        lines.add(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()));
+        lines.addAll(getReport());
+        try {
+            Files.write(DUMP_FILE.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            System.out.println("Unable to write " + DUMP_FILE.getPath() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package winslow.shipwrecks;
+
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+
+import java.util.Arrays;
+
+/*
+ * Everything needed to place one wreck: the final state of every block it changes (all passes and damage already
+ * composed, one entry per position), and the chests with the seeds their loot is rolled from.
+ * Plans are built off the server thread and are immutable, applying one only copies it into the world.
+ * Blocks are sorted by chunk section into slices, so a plan can also be placed a few sections at a time.
+ */
+final class WreckPlan {
+    final int dimension;
+    final String structure;
+    final BlockPos origin;
+    final int variant;
+    final long[] positions; //BlockPos.toLong, each position appears once
+    final IBlockState[] states;
+    final int[] sliceStarts; //first block of each slice (one chunk section), plus positions.length at the end
+    final long[] chestPositions;
+    final String[] chestLoot;
+    final long[] chestSeeds;
+    final int[] chestSlices; //the slice each chest is in
+    final StructureBoundingBox bounds; //every block the wreck places, damage only replaces blocks inside it
+    final boolean cancelled; //planning failed, nothing to place but the footprint reservation has to be released
+
+    private WreckPlan(Builder builder) {
+        this.cancelled = false;
+        this.dimension = builder.dimension;
+        this.structure = builder.structure;
+        this.origin = builder.origin;
+        this.variant = builder.variant;
+        long[] drained = new long[builder.blocks.size()];
+        IBlockState[] drainedStates = new IBlockState[drained.length];
+        builder.blocks.drainTo(drained, drainedStates);
+
+        //sort by section key, with the index in the low bits
+        long[] order = new long[drained.length];
+        for (int i = 0; i < order.length; ++i)
+            order[i] = getSliceKey(origin, drained[i]) << 32 | i;
+        Arrays.sort(order);
+
+        this.positions = new long[drained.length];
+        this.states = new IBlockState[drained.length];
+        int[] sliceStarts = new int[drained.length + 1];
+        long[] sliceKeys = new long[drained.length];
+        int sliceCount = 0;
+        for (int i = 0; i < order.length; ++i) {
+            int index = (int) order[i];
+            positions[i] = drained[index];
+            states[i] = drainedStates[index];
+            long key = order[i] >>> 32;
+            if (sliceCount == 0 || sliceKeys[sliceCount - 1] != key) {
+                sliceKeys[sliceCount] = key;
+                sliceStarts[sliceCount++] = i;
+            }
+        }
+        sliceStarts[sliceCount] = positions.length;
+        this.sliceStarts = Arrays.copyOf(sliceStarts, sliceCount + 1);
+
+        //chests that were overwritten or damaged away don't get loot
+        int chestCount = 0;
+        long[] chestPositions = new long[builder.chestCount];
+        String[] chestLoot = new String[builder.chestCount];
+        long[] chestSeeds = new long[builder.chestCount];
+        for (int i = 0; i < builder.chestCount; ++i) {
+            if (builder.blocks.get(builder.chestPositions[i]) == builder.chestStates[i]) {
+                chestPositions[chestCount] = builder.chestPositions[i];
+                chestLoot[chestCount] = builder.chestLoot[i];
+                chestSeeds[chestCount] = builder.chestSeeds[i];
+                ++chestCount;
+            }
+        }
+        this.chestPositions = Arrays.copyOf(chestPositions, chestCount);
+        this.chestLoot = Arrays.copyOf(chestLoot, chestCount);
+        this.chestSeeds = Arrays.copyOf(chestSeeds, chestCount);
+
+        this.chestSlices = new int[chestCount];
+        for (int i = 0; i < chestCount; ++i) {
+            long key = getSliceKey(origin, chestPositions[i]);
+            chestSlices[i] = Arrays.binarySearch(sliceKeys, 0, sliceCount, key);
+        }
+        this.bounds = getBounds(origin, positions);
+    }
+
+    private WreckPlan(int dimension, String structure, BlockPos origin) {
+        this.cancelled = true;
+        this.dimension = dimension;
+        this.structure = structure;
+        this.origin = origin;
+        this.variant = -1;
+        this.positions = new long[0];
+        this.states = new IBlockState[0];
+        this.sliceStarts = new int[]{0};
+        this.chestPositions = new long[0];
+        this.chestLoot = new String[0];
+        this.chestSeeds = new long[0];
+        this.chestSlices = new int[0];
+        this.bounds = new StructureBoundingBox(origin, origin);
+    }
+
+    /*
+     * Stands in for a wreck whose planning failed, so whoever waits on the plan still hears back
+     */
+    static WreckPlan cancelled(int dimension, String structure, BlockPos origin) {
+        return new WreckPlan(dimension, structure, origin);
+    }
+
+    int getSliceCount() {
+        return sliceStarts.length - 1;
+    }
+
+    /*
+     * Sorts blocks by chunk x, chunk z, then section y. Chunks are counted from the origin's chunk, 12 bits each
+     * way is far more than any structure reaches.
+     */
+    private static long getSliceKey(BlockPos origin, long pos) {
+        BlockPos blkPos = BlockPos.fromLong(pos);
+        long chunkX = (blkPos.getX() >> 4) - (origin.getX() >> 4) + 2048;
+        long chunkZ = (blkPos.getZ() >> 4) - (origin.getZ() >> 4) + 2048;
+        return chunkX << 16 | chunkZ << 4 | (blkPos.getY() >> 4 & 15);
+    }
+
+    private static StructureBoundingBox getBounds(BlockPos origin, long[] positions) {
+        if (positions.length == 0)
+            return new StructureBoundingBox(origin, origin);
+
+        StructureBoundingBox bounds = StructureBoundingBox.getNewBoundingBox();
+        for (long pos : positions) {
+            BlockPos blkPos = BlockPos.fromLong(pos);
+            bounds.expandTo(new StructureBoundingBox(blkPos, blkPos));
+        }
+        return bounds;
+    }
+
+    /*
+     * Composes blocks while a plan is being built, not thread safe
+     */
+    static final class Builder {
+        private final int dimension;
+        private final String structure;
+        private final BlockPos origin;
+        private final int variant;
+
+        private final VoxelBuffer blocks = new VoxelBuffer();
+
+        private long[] chestPositions = new long[8];
+        private IBlockState[] chestStates = new IBlockState[8];
+        private String[] chestLoot = new String[8];
+        private long[] chestSeeds = new long[8];
+        private int chestCount = 0;
+
+        Builder(int dimension, String structure, BlockPos origin, int variant) {
+            this.dimension = dimension;
+            this.structure = structure;
+            this.origin = origin;
+            this.variant = variant;
+        }
+
+        void addBlock(long pos, IBlockState state) {
+            blocks.put(pos, state);
+        }
+
+        /*
+         * Number of positions composed so far
+         */
+        int size() {
+            return blocks.size();
+        }
+
+        /*
+         * Give the block just added at pos loot. The loot is dropped if something else ends up at pos.
+         */
+        void addChest(long pos, String loot, long seed) {
+            if (chestCount == chestPositions.length) {
+                chestPositions = Arrays.copyOf(chestPositions, chestCount * 2);
+                chestStates = Arrays.copyOf(chestStates, chestCount * 2);
+                chestLoot = Arrays.copyOf(chestLoot, chestCount * 2);
+                chestSeeds = Arrays.copyOf(chestSeeds, chestCount * 2);
+            }
+            chestPositions[chestCount] = pos;
+            chestStates[chestCount] = blocks.get(pos);
+            chestLoot[chestCount] = loot;
+            chestSeeds[chestCount] = seed;
+            ++chestCount;
+        }
+
+        /*
+         * Replace the block at target with the wreck's block at source. If the wreck has no block at source, the
+         * wreck leaves target alone too so the world's own block (usually water) stays, which needs no world reads.
+         */
+        void addDamage(long target, long source) {
+            IBlockState state = blocks.get(source);
+            if (state != null)
+                blocks.put(target, state);
+            else
+                blocks.remove(target);
+        }
+
+        WreckPlan build() {
+            return new WreckPlan(this);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package winslow.shipwrecks;
+
+import net.minecraft.util.math.BlockPos;
+
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Makes every random decision for a wreck (orientation, floating, random section offsets, chance
+ * sections, damage and chest loot seeds) on a worker thread. The finished plans are queued for the server thread,
+ * which only has to copy them into the world. Planning never touches the world.
+ */
+class WreckPlanner {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final AtomicInteger planning = new AtomicInteger(); //submitted plans that haven't finished yet
+    private static volatile ExecutorService executor = createExecutor(Math.max(1, Runtime.getRuntime().availableProcessors() / 2)); //null plans inline
+
+    private static final Queue<WreckPlan> finishedPlans = new ConcurrentLinkedQueue<>();
+
+    private static ExecutorService createExecutor(int threads) {
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Shipwreck Planner " + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * Change the number of planner threads, 0 plans on the thread that submits instead (for profiling).
+     * Plans already submitted still finish on the old threads.
+     */
+    static synchronized void setThreads(int threads) {
+        ExecutorService old = executor;
+        executor = threads > 0 ? createExecutor(threads) : null;
+        if (old != null)
+            old.shutdown();
+    }
+
+    /*
+     * Plan a wreck in the background and add it to finished, normally getFinishedPlans() which the tick handler
+     * places from. A plan that fails adds a cancelled plan instead, so its footprint reservation gets released.
+     * The seed comes from the wreck's grid cell (see WreckLocator) and the config is the snapshot the wreck was
+     * started with, so the plan doesn't depend on which thread or tick built it.
+     */
+    static void submit(ShipwreckConfig.Snapshot config, int dimension, String structure, BlockPos origin, int seaLevel, long seed,
+                       Queue<WreckPlan> finished) {
+        planning.incrementAndGet();
+        Runnable task = () -> {
+            WreckPlan plan = null;
+            try {
+                plan = plan(config, dimension, structure, origin, seaLevel, new Random(seed));
+            } catch (RuntimeException e) {
+                System.out.println("Unable to plan shipwreck at " + origin + ": " + e.getMessage());
+            } finally {
+                finished.add(plan != null ? plan : WreckPlan.cancelled(dimension, structure, origin));
+                planning.decrementAndGet();
+            }
+        };
+
+        ExecutorService current = executor;
+        if (current != null)
+            current.execute(task);
+        else
+            task.run();
+    }
+
+    /*
+     * Check if every submitted plan has finished (finished plans may still be waiting to be polled)
+     */
+    static boolean isIdle() {
+        return planning.get() == 0;
+    }
+
+    /*
+     * Get the next finished plan, null if there are none waiting
+     */
+    static WreckPlan poll() {
+        return finishedPlans.poll();
+    }
+
+    static Queue<WreckPlan> getFinishedPlans() {
+        return finishedPlans;
+    }
+
+    /*
+     * Build a plan for a wreck at the passed seafloor position, null if the structure couldn't be loaded
+     */
+    static WreckPlan plan(ShipwreckConfig.Snapshot config, int dimension, String structure, BlockPos pos, int seaLevel, Random random) {
+        long start = WreckMetrics.start();
+        Object planEvent = WreckEvents.begin(WreckEvents.Phase.PLAN);
+        StructureTemplate template = StructureRegistry.getTemplate(structure);
+        if (template == null)
+            return null;
+
+        //E, W, N, S orientation, optionally mirrored
+        int variantIndex = random.nextInt(config.mirrorWrecks ? StructureTemplate.VARIANTS : StructureTemplate.ORIENTATIONS);
+        StructureTemplate.Variant variant = template.getVariant(variantIndex);
+
+        // 1 in 6 chance of ship floating
+        if (template.canFloat && random.nextInt(6) == 0)
+            pos = pos.add(0, seaLevel - pos.getY(), 0);
+
+        WreckPlan.Builder plan = new WreckPlan.Builder(dimension, structure, pos, variantIndex);
+        int chunkX = pos.getX() >> 4;
+        int chunkZ = pos.getZ() >> 4;
+
+        Object event = WreckEvents.begin(WreckEvents.Phase.SECTIONS);
+        for (StructureTemplate.BlockGroup group : variant.sections) //add each segment
+            addBlocks(plan, group, pos, random);
+        WreckEvents.commit(event, structure, variantIndex, chunkX, chunkZ, plan.size());
+
+        //structure pieces that can appear a random orientation and distance from the center of the structure
+        event = WreckEvents.begin(WreckEvents.Phase.RANDOM_SECTIONS);
+        int before = plan.size();
+        for (StructureTemplate.RandomSection section : variant.randomSections) {
+            int xOffset = section.min + random.nextInt(section.max - section.min);
+            int zOffset = section.min + random.nextInt(section.max - section.min);
+
+            //50% chance to be negative x or y from center of wreck
+            if (random.nextInt(2) == 0)
+                xOffset *= -1;
+            if (random.nextInt(2) == 0)
+                zOffset *= -1;
+
+            //find new position to act as (0, 0, 0) for random object
+            BlockPos newPos = new BlockPos(pos.getX() + xOffset, pos.getY(), pos.getZ() + zOffset);
+
+            addBlocks(plan, section.group, newPos, random);
+        }
+        WreckEvents.commit(event, structure, variantIndex, chunkX, chunkZ, plan.size() - before);
+
+        //sections that have a given chance to spawn
+        event = WreckEvents.begin(WreckEvents.Phase.CHANCE_SECTIONS);
+        before = plan.size();
+        for (StructureTemplate.ChanceSection section : variant.chanceSections) {
+            for (int j = 0; j < section.chance.length; ++j) {
+                if (random.nextInt(section.chance[j]) == 0) {
+                    for (StructureTemplate.BlockGroup group : section.blocks[j])
+                        addBlocks(plan, group, pos, random);
+
+                    if (section.exclusive)
+                        break;
+                }
+            }
+        }
+        WreckEvents.commit(event, structure, variantIndex, chunkX, chunkZ, plan.size() - before);
+
+        //create damage on ship. Replace removed blocks with block type 1 away from center and 1 Y coord up
+        event = WreckEvents.begin(WreckEvents.Phase.DAMAGE);
+        int damaged = 0;
+        for (StructureTemplate.DamageSection section : variant.damageSections) {
+            if (section.facing == null)
+                continue;
+
+            for (int j = 0; j < section.chance.length; ++j) {
+                if (random.nextInt(section.chance[j]) == 0) {
+                    int[] xs = section.xs[j];
+                    int[] ys = section.ys[j];
+                    int[] zs = section.zs[j];
+
+                    for (int k = 0; k < xs.length; ++k) {
+                        BlockPos blkPos = pos.add(xs[k], ys[k], zs[k]);
+
+                        //facing determines which side of the block to get the replacement block from
+                        BlockPos blkSource = blkPos.offset(section.facing).up();
+
+                        plan.addDamage(blkPos.toLong(), blkSource.toLong());
+                    }
+                    damaged += xs.length;
+                }
+            }
+        }
+        WreckEvents.commit(event, structure, variantIndex, chunkX, chunkZ, damaged);
+
+        WreckPlan built = plan.build();
+        WreckEvents.commit(planEvent, structure, variantIndex, chunkX, chunkZ, built.positions.length);
+        WreckMetrics.record(WreckMetrics.Timer.PLAN, structure, start);
+        return built;
+    }
+
+    /*
+     * adds a compiled, pre-rotated block group to the plan
+     */
+    private static void addBlocks(WreckPlan.Builder plan, StructureTemplate.BlockGroup group, BlockPos pos, Random random) {
+        for (int i = 0; i < group.xs.length; ++i) {
+            long blkPos = pos.add(group.xs[i], group.ys[i], group.zs[i]).toLong();
+            plan.addBlock(blkPos, group.state);
+
+            if (group.loot != null) //process blocks with inventory differently (e.g. chests have loot tiers)
+                plan.addChest(blkPos, group.loot, random.nextLong());
+        }
+    }
+}
@@ -0,0 +1,343 @@
+package winslow.shipwrecks;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldServer;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldSavedData;
+import net.minecraftforge.common.DimensionManager;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/*
+ * Generates the wrecks around a point ahead of time (/shipwrecks pregen) so players exploring a new map don't pay for
+ * them. Walks the wreck grid cells (see WreckLocator) outward in rings, plans each wreck on the planner threads and
+ * places finished wrecks from the server tick, generating and populating the chunks under them first. Every tick
+ * gets at most the configured Pregen Tick Millis. The cursor is saved with the overworld, so a pregen cut short by a restart carries on
+ * from where it was once the server starts again.
+ */
+public class WreckPregen extends WorldSavedData {
+    private static final String DATA_NAME = ShipwrecksMain.MODID + "_pregen";
+    private static final int MAX_IN_FLIGHT = 16; //wrecks being planned or waiting to be placed
+    private static final long REPORT_MILLIS = 30000;
+
+    private static WreckPregen active;
+
+    //saved
+    private boolean running = false;
+    private int centerX; //in grid cells
+    private int centerZ;
+    private int radius; //in grid cells
+    private int cursor = 0; //every cell before this one is done
+    private int placed = 0;
+
+    //this session only
+    private int next;
+    private final Queue<WreckPlan> finished = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Integer> inFlight = new HashMap<>(); //wreck x/z -> cell index
+    private final TreeMap<Integer, Integer> inFlightCells = new TreeMap<>(); //cell index -> wrecks, for the cursor
+    private int sessionStart;
+    private long sessionStartTime;
+    private long lastReport;
+
+    public WreckPregen(String name) {
+        super(name);
+    }
+
+    private static WreckPregen get(World world) {
+        MapStorage storage = world.getPerWorldStorage();
+        WreckPregen data = (WreckPregen) storage.getOrLoadData(WreckPregen.class, DATA_NAME);
+        if (data == null) {
+            data = new WreckPregen(DATA_NAME);
+            storage.setData(DATA_NAME, data);
+        }
+        return data;
+    }
+
+    /*
+     * Start pregenerating every cell within radius blocks of x, z in the overworld. False if one is already running.
+     */
+    static boolean start(World world, int x, int z, int radius) {
+        if (active != null)
+            return false;
+
+        int cellSize = ShipwreckConfig.get().maxDist * 16;
+        WreckPregen pregen = get(world);
+        pregen.running = true;
+        pregen.centerX = Math.floorDiv(x, cellSize);
+        pregen.centerZ = Math.floorDiv(z, cellSize);
+        pregen.radius = (radius + cellSize - 1) / cellSize;
+        pregen.cursor = 0;
+        pregen.placed = 0;
+        pregen.markDirty();
+        pregen.resumeSession();
+        active = pregen;
+        return true;
+    }
+
+    /*
+     * Pick up a pregen that was running when the server last stopped. Called once the worlds are loaded.
+     */
+    static void resume() {
+        World world = DimensionManager.getWorld(0);
+        if (world == null)
+            return;
+        WreckPregen pregen = get(world);
+        if (!pregen.running)
+            return;
+        pregen.resumeSession();
+        active = pregen;
+        System.out.println("Resuming shipwreck pregen at cell " + pregen.cursor + " of " + pregen.getTotal());
+    }
+
+    /*
+     * Stop the running pregen, false if there is none. Wrecks already being planned are still placed over the next
+     * ticks so their footprints aren't left reserved.
+     */
+    static boolean stop() {
+        if (active == null || !active.running)
+            return false;
+        active.running = false;
+        active.markDirty();
+        return true;
+    }
+
+    /*
+     * Forget the running pregen without stopping it, the saved cursor picks it up on the next start
+     */
+    static void unload() {
+        active = null;
+    }
+
+    /*
+     * Progress of the running pregen, null if there is none
+     */
+    static String getStatus() {
+        return active == null ? null : active.getProgress();
+    }
+
+    private void resumeSession() {
+        next = cursor;
+        finished.clear();
+        inFlight.clear();
+        inFlightCells.clear();
+        sessionStart = cursor;
+        sessionStartTime = System.currentTimeMillis();
+        lastReport = sessionStartTime;
+    }
+
+    private int getTotal() {
+        return (radius * 2 + 1) * (radius * 2 + 1);
+    }
+
+    /*
+     * Run the pregen for this tick's time budget. Server thread only.
+     */
+    static void tick() {
+        if (active == null)
+            return;
+        World world = DimensionManager.getWorld(0);
+        if (world != null)
+            active.run(world);
+    }
+
+    private void run(World world) {
+        ShipwreckConfig.Snapshot config = ShipwreckConfig.get();
+        long deadline = System.nanoTime() + config.pregenMillis * 1000000L;
+
+        //place first so planned wrecks don't pile up
+        WreckPlan plan;
+        while (System.nanoTime() < deadline && (plan = finished.poll()) != null)
+            place(world, plan);
+
+        //stopped, only finish what was already planned
+        if (!running) {
+            if (inFlight.isEmpty()) {
+                active = null;
+                System.out.println("Shipwreck pregen stopped, " + placed + " wrecks placed");
+            }
+            return;
+        }
+
+        int total = getTotal();
+        while (System.nanoTime() < deadline && inFlight.size() < MAX_IN_FLIGHT && next < total)
+            scan(world, config, next++);
+
+        int done = inFlightCells.isEmpty() ? next : inFlightCells.firstKey();
+        if (done != cursor) {
+            cursor = done;
+            markDirty();
+        }
+
+        if (cursor >= total) {
+            running = false;
+            markDirty();
+            active = null;
+            System.out.println("Shipwreck pregen finished, " + placed + " wrecks placed");
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        if (now - lastReport >= REPORT_MILLIS) {
+            lastReport = now;
+            System.out.println(getProgress());
+        }
+    }
+
+    /*
+     * Start the wreck for one cell, if it has one that hasn't been generated already
+     */
+    private void scan(World world, ShipwreckConfig.Snapshot config, int index) {
+        int[] offset = getCellOffset(index);
+        int cellX = centerX + offset[0];
+        int cellZ = centerZ + offset[1];
+
+        //once the anchor chunk exists its wreck was generated with it (or will be when it populates)
+        int max = config.maxDist;
+        if (world.getChunkProvider().isChunkGeneratedAt(cellX * max, cellZ * max))
+            return;
+
+        WreckLocator.WreckSite site = WreckLocator.getSite(world, config, cellX, cellZ);
+        if (site == null)
+            return;
+
+        //the seafloor is read from the site's chunk, which needs to be populated first
+        int siteX = site.pos.getX() >> 4;
+        int siteZ = site.pos.getZ() >> 4;
+        populateChunks(world, siteX, siteZ, siteX, siteZ);
+
+        //populating can generate the anchor chunk, then the live generator has started the wreck
+        if (world.getChunkProvider().isChunkGeneratedAt(cellX * max, cellZ * max)
+                || ShipwrecksMain.getGenerator().startWreck(world, config, site, finished) == null) {
+            unloadChunks(world, siteX, siteZ, siteX, siteZ);
+            return;
+        }
+        inFlight.put(ChunkPos.asLong(site.pos.getX(), site.pos.getZ()), index);
+        inFlightCells.merge(index, 1, Integer::sum);
+    }
+
+    /*
+     * Place a planned wreck after generating and populating every chunk it covers, so its blocks are written now
+     * rather than waiting in PendingBlocks for the chunks to populate
+     */
+    private void place(World world, WreckPlan plan) {
+        Integer index = inFlight.remove(ChunkPos.asLong(plan.origin.getX(), plan.origin.getZ()));
+        if (index != null && inFlightCells.merge(index, -1, Integer::sum) == 0)
+            inFlightCells.remove(index);
+
+        if (plan.cancelled) {
+            WreckFootprints.get(world).release(plan.origin);
+            return;
+        }
+
+        StructureBoundingBox bounds = plan.bounds;
+        populateChunks(world, bounds.minX >> 4, bounds.minZ >> 4, bounds.maxX >> 4, bounds.maxZ >> 4);
+
+        ShipwrecksMain.getGenerator().applyPlan(world, plan);
+        ++placed;
+        markDirty();
+
+        unloadChunks(world, bounds.minX >> 4, bounds.minZ >> 4, bounds.maxX >> 4, bounds.maxZ >> 4);
+    }
+
+    /*
+     * Generate the chunks in a range plus one more on the +x and +z sides. A chunk populates once its +x, +z and
+     * +x+z neighbours exist, so that populates every chunk in the range.
+     */
+    private static void populateChunks(World world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        for (int chunkX = minChunkX; chunkX <= maxChunkX + 1; ++chunkX)
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ + 1; ++chunkZ)
+                world.getChunkFromChunkCoords(chunkX, chunkZ);
+    }
+
+    /*
+     * Let the server save and drop the chunks populateChunks loaded again, unless a player is near them
+     */
+    private static void unloadChunks(World world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        if (!(world instanceof WorldServer))
+            return;
+        WorldServer server = (WorldServer) world;
+        for (int chunkX = minChunkX; chunkX <= maxChunkX + 1; ++chunkX) {
+            for (int chunkZ = minChunkZ; chunkZ <= maxChunkZ + 1; ++chunkZ) {
+                Chunk chunk = server.getChunkProvider().getLoadedChunk(chunkX, chunkZ);
+                if (chunk != null && !server.getPlayerChunkMap().contains(chunkX, chunkZ))
+                    server.getChunkProvider().queueUnload(chunk);
+            }
+        }
+    }
+
+    private String getProgress() {
+        int total = getTotal();
+        int scanned = next - sessionStart;
+        long elapsed = System.currentTimeMillis() - sessionStartTime;
+        String eta = scanned <= 0 ? "unknown" : formatDuration((long) ((total - next) * (double) elapsed / scanned));
+        return String.format("Shipwreck pregen: %d/%d cells (%.1f%%), %d wrecks placed, %d planning, ETA %s",
+                cursor, total, cursor * 100.0 / total, placed, inFlight.size(), eta);
+    }
+
+    private static String formatDuration(long millis) {
+        long seconds = millis / 1000;
+        if (seconds < 60)
+            return seconds + "s";
+        if (seconds < 3600)
+            return (seconds / 60) + "m " + (seconds % 60) + "s";
+        return (seconds / 3600) + "h " + (seconds / 60 % 60) + "m";
+    }
+
+    /*
+     * The cell offset from the center for a cursor index, walking rings outward so the nearest wrecks come first.
+     * Ring r starts at index (2r - 1)^2 and has 8r cells, starting next to its (r, -r) corner.
+     */
+    static int[] getCellOffset(int index) {
+        if (index == 0)
+            return new int[]{0, 0};
+
+        int ring = (int) ((Math.sqrt(index) + 1) / 2);
+        while ((2 * ring + 1) * (2 * ring + 1) <= index) //the square root can be off by one for large indices
+            ++ring;
+        while ((2 * ring - 1) * (2 * ring - 1) > index)
+            --ring;
+
+        int step = index - (2 * ring - 1) * (2 * ring - 1);
+        int side = step / (2 * ring);
+        int along = step % (2 * ring);
+        switch (side) {
+            case 0:
+                return new int[]{ring, -ring + 1 + along};
+            case 1:
+                return new int[]{ring - 1 - along, ring};
+            case 2:
+                return new int[]{-ring, ring - 1 - along};
+            default:
+                return new int[]{-ring + 1 + along, -ring};
+        }
+    }
+
+    @Override
+    public void readFromNBT(NBTTagCompound nbt) {
+        running = nbt.getBoolean("running");
+        centerX = nbt.getInteger("centerX");
+        centerZ = nbt.getInteger("centerZ");
+        radius = nbt.getInteger("radius");
+        cursor = nbt.getInteger("cursor");
+        placed = nbt.getInteger("placed");
+    }
+
+    @Override
+    public NBTTagCompound writeToNBT(NBTTagCompound nbt) {
+        nbt.setBoolean("running", running);
+        nbt.setInteger("centerX", centerX);
+        nbt.setInteger("centerZ", centerZ);
+        nbt.setInteger("radius", radius);
+        nbt.setInteger("cursor", cursor);
+        nbt.setInteger("placed", placed);
+        return nbt;
+    }
+}
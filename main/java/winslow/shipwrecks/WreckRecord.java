@@ -0,0 +1,119 @@
+package winslow.shipwrecks;
+
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.nbt.NBTTagString;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+import net.minecraftforge.common.util.Constants;
+
+/*
+ * A wreck that has been placed in the world, as stored in the wreck index
+ */
+public final class WreckRecord {
+    public static final byte LOOT_UNOPENED = 0;
+    public static final byte LOOT_OPENED = 1;
+
+    public final String structure;
+    public final BlockPos origin;
+    public final int variant; //see StructureTemplate.getVariant
+    public final StructureBoundingBox bounds;
+    private final BlockPos[] chests;
+    private final String[] chestLoot;
+    private final byte[] chestStatus;
+
+    WreckRecord(String structure, BlockPos origin, int variant, StructureBoundingBox bounds, BlockPos[] chests,
+                String[] chestLoot) {
+        this(structure, origin, variant, bounds, chests, chestLoot, new byte[chests.length]);
+    }
+
+    private WreckRecord(String structure, BlockPos origin, int variant, StructureBoundingBox bounds, BlockPos[] chests,
+                        String[] chestLoot, byte[] chestStatus) {
+        this.structure = structure;
+        this.origin = origin;
+        this.variant = variant;
+        this.bounds = bounds;
+        this.chests = chests;
+        this.chestLoot = chestLoot;
+        this.chestStatus = chestStatus;
+    }
+
+    /*
+     * Build the record for a plan that has just been applied
+     */
+    static WreckRecord fromPlan(WreckPlan plan) {
+        BlockPos[] chests = new BlockPos[plan.chestPositions.length];
+        for (int i = 0; i < chests.length; ++i)
+            chests[i] = BlockPos.fromLong(plan.chestPositions[i]);
+        return new WreckRecord(plan.structure, plan.origin, plan.variant, plan.bounds, chests, plan.chestLoot.clone());
+    }
+
+    public int getChestCount() {
+        return chests.length;
+    }
+
+    public BlockPos getChest(int index) {
+        return chests[index];
+    }
+
+    public String getChestLoot(int index) {
+        return chestLoot[index];
+    }
+
+    public byte getChestStatus(int index) {
+        return chestStatus[index];
+    }
+
+    /*
+     * Returns the index of the chest at a position, -1 if the position isn't one of this wreck's chests
+     */
+    int findChest(BlockPos pos) {
+        for (int i = 0; i < chests.length; ++i)
+            if (chests[i].equals(pos))
+                return i;
+        return -1;
+    }
+
+    void setChestStatus(int index, byte status) {
+        chestStatus[index] = status;
+    }
+
+    NBTTagCompound writeToNBT() {
+        NBTTagCompound tag = new NBTTagCompound();
+        tag.setString("structure", structure);
+        tag.setLong("origin", origin.toLong());
+        tag.setByte("variant", (byte) variant);
+        tag.setTag("bounds", bounds.toNBTTagIntArray());
+
+        int[] chestCoords = new int[chests.length * 3];
+        NBTTagList loot = new NBTTagList();
+        for (int i = 0; i < chests.length; ++i) {
+            chestCoords[i * 3] = chests[i].getX();
+            chestCoords[i * 3 + 1] = chests[i].getY();
+            chestCoords[i * 3 + 2] = chests[i].getZ();
+            loot.appendTag(new NBTTagString(chestLoot[i]));
+        }
+        tag.setIntArray("chests", chestCoords);
+        tag.setTag("loot", loot);
+        tag.setByteArray("status", chestStatus);
+        return tag;
+    }
+
+    static WreckRecord readFromNBT(NBTTagCompound tag) {
+        int[] chestCoords = tag.getIntArray("chests");
+        NBTTagList loot = tag.getTagList("loot", Constants.NBT.TAG_STRING);
+        byte[] status = tag.getByteArray("status");
+
+        BlockPos[] chests = new BlockPos[chestCoords.length / 3];
+        String[] chestLoot = new String[chests.length];
+        byte[] chestStatus = new byte[chests.length];
+        for (int i = 0; i < chests.length; ++i) {
+            chests[i] = new BlockPos(chestCoords[i * 3], chestCoords[i * 3 + 1], chestCoords[i * 3 + 2]);
+            chestLoot[i] = loot.getStringTagAt(i);
+            chestStatus[i] = i < status.length ? status[i] : LOOT_UNOPENED;
+        }
+
+        return new WreckRecord(tag.getString("structure"), BlockPos.fromLong(tag.getLong("origin")),
+                tag.getByte("variant"), new StructureBoundingBox(tag.getIntArray("bounds")), chests, chestLoot, chestStatus);
+    }
+}
@@ -0,0 +1,143 @@
+package winslow.shipwrecks;
+
+import net.minecraft.entity.player.EntityPlayer;
+import net.minecraft.world.World;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+import net.minecraftforge.common.DimensionManager;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Places finished wreck plans a slice (one chunk section) at a time from the end of the server tick, for only as
+ * long as the tick is under Tick Target Millis, so a big wreck lands over several ticks instead of in one spike.
+ * Wrecks go in the order they were planned. A wreck with a player within Finish Distance blocks of it is finished at
+ * once whatever the tick costs, and at least one slice goes in every tick so a busy server still drains the queue.
+ * Server thread only.
+ */
+final class WreckScheduler {
+    private static final long WAIT_NANOS = 100000; //between checks on the planners while the server stops
+    private static final Deque<Placement> placements = new ArrayDeque<>();
+    private static long tickStart = System.nanoTime();
+
+    private WreckScheduler() {
+    }
+
+    /*
+     * A wreck partway into the world
+     */
+    private static final class Placement {
+        final World world;
+        final WreckPlan plan;
+        int next = 0; //first slice not placed yet
+
+        Placement(World world, WreckPlan plan) {
+            this.world = world;
+            this.plan = plan;
+        }
+    }
+
+    static void add(World world, WreckPlan plan) {
+        placements.add(new Placement(world, plan));
+    }
+
+    /*
+     * Queue the wrecks the planner threads have finished. A cancelled plan only releases its footprint.
+     */
+    static void addFinished() {
+        WreckPlan plan;
+        while ((plan = WreckPlanner.poll()) != null) {
+            World world = DimensionManager.getWorld(plan.dimension);
+            if (world == null)
+                continue;
+            if (plan.cancelled)
+                WreckFootprints.get(world).release(plan.origin);
+            else
+                add(world, plan);
+        }
+    }
+
+    /*
+     * Mark the start of a server tick, everything the server does until run is counted against the target
+     */
+    static void startTick() {
+        tickStart = System.nanoTime();
+    }
+
+    /*
+     * Place queued slices with whatever is left of this tick
+     */
+    static void run() {
+        if (placements.isEmpty())
+            return;
+
+        //wrecks a player is about to see go in whole
+        ShipwreckConfig.Snapshot config = ShipwreckConfig.get();
+        int distance = config.finishDistance;
+        Iterator<Placement> iterator = placements.iterator();
+        while (iterator.hasNext()) {
+            Placement placement = iterator.next();
+            if (isPlayerNear(placement, distance)) {
+                place(placement, placement.plan.getSliceCount());
+                iterator.remove();
+            }
+        }
+
+        long deadline = tickStart + config.tickTargetMillis * 1000000L;
+        boolean first = true;
+        while (!placements.isEmpty() && (first || System.nanoTime() < deadline)) {
+            Placement placement = placements.peek();
+            if (place(placement, placement.next + 1))
+                placements.poll();
+            first = false;
+        }
+    }
+
+    /*
+     * Place every wreck now, before the server stops, including the ones still being planned. Their anchor chunks
+     * have already populated, so a wreck dropped here would never be generated.
+     */
+    static void finishAll() {
+        while (!WreckPlanner.isIdle())
+            LockSupport.parkNanos(WAIT_NANOS);
+        addFinished();
+
+        Placement placement;
+        while ((placement = placements.poll()) != null)
+            place(placement, placement.plan.getSliceCount());
+    }
+
+    /*
+     * Drop the wrecks queued for a world that is unloading
+     */
+    static void unload(World world) {
+        placements.removeIf(placement -> placement.world == world);
+    }
+
+    /*
+     * Place slices up to (exclusive) to, true once the whole wreck is in
+     */
+    private static boolean place(Placement placement, int to) {
+        WreckPlan plan = placement.plan;
+        if (to > placement.next)
+            ShipwrecksMain.getGenerator().applySlices(placement.world, plan, placement.next, to);
+        placement.next = to;
+        if (to < plan.getSliceCount())
+            return false;
+        ShipwrecksMain.getGenerator().finishPlan(placement.world, plan);
+        return true;
+    }
+
+    private static boolean isPlayerNear(Placement placement, int distance) {
+        StructureBoundingBox bounds = placement.plan.bounds;
+        for (EntityPlayer player : placement.world.playerEntities) {
+            double dx = Math.max(0, Math.max(bounds.minX - player.posX, player.posX - bounds.maxX - 1));
+            double dz = Math.max(0, Math.max(bounds.minZ - player.posZ, player.posZ - bounds.maxZ - 1));
+            if (dx * dx + dz * dz <= (double) distance * distance)
+                return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,195 @@
+package winslow.shipwrecks;
+
+import com.sun.management.ThreadMXBean;
+import net.minecraft.init.Bootstrap;
+import net.minecraft.util.math.ChunkPos;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Command line simulator that runs the real generator over a square of chunks in a MemoryWorld, without a server.
+ * Chunks are populated in rows the way a server populates them as players explore, and finished plans are placed
+ * after each row like the tick handler places them. Each scenario is run with a different number of planner threads
+ * (0 plans inline on the generating thread) and reports wrecks, blocks and allocation per second. With fixed seeds
+ * every run places the same wrecks, so it also works as a steady load to attach a profiler or JFR to.
+ *
+ * Like the other command line tools it lives in the sim source root, which isn't part of the mod jar. Run it with
+ * the mod and the Minecraft/Forge libraries on the classpath.
+ *
+ * usage: GenerationSimulator [-radius chunks] [-seed seed] [-threads n,n,...] [-repeat n] [-floor y]
+ *                            [-config file.cfg] [-realbiomes]
+ * defaults to a radius of 64 chunks, 0 and 4 planner threads, ./config/<modid>.cfg and banded ocean/beach biomes
+ */
+public final class GenerationSimulator {
+    private static final String DEFAULT_CONFIG = "./config/" + ShipwrecksMain.MODID + ".cfg";
+    private static final int WARMUP_RADIUS = 16;
+    private static final long WAIT_NANOS = 100000; //between checks on the planners at the end of a run
+
+    private GenerationSimulator() {
+    }
+
+    /*
+     * Totals for one run over the grid
+     */
+    private static final class Result {
+        int chunks;
+        int wrecks;
+        long blocks;
+        long nanos;
+        long allocated;
+        final Map<String, Integer> structures = new TreeMap<>();
+    }
+
+    public static void main(String[] args) {
+        int radius = 64;
+        long seed = 0;
+        int[] threads = {0, 4};
+        int repeat = 1;
+        int floor = 40;
+        String config = DEFAULT_CONFIG;
+        boolean realBiomes = false;
+
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "-radius":
+                    radius = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "-threads":
+                    threads = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "-repeat":
+                    repeat = Integer.parseInt(args[++i]);
+                    break;
+                case "-floor":
+                    floor = Integer.parseInt(args[++i]);
+                    break;
+                case "-config":
+                    config = args[++i];
+                    break;
+                case "-realbiomes":
+                    realBiomes = true;
+                    break;
+                default:
+                    System.out.println("Unknown argument " + args[i]);
+                    System.out.println("usage: GenerationSimulator [-radius chunks] [-seed seed] [-threads n,n,...] [-repeat n] "
+                            + "[-floor y] [-config file.cfg] [-realbiomes]");
+                    System.exit(1);
+            }
+        }
+
+        bootstrap(new File(config));
+        System.out.println("Simulating " + (radius * 2) + "x" + (radius * 2) + " chunks with seed " + seed + ", "
+                + (realBiomes ? "the seed's biomes" : "banded biomes") + ", seafloor at y " + floor);
+
+        //let the JIT compile the generator before anything is measured
+        WreckPlanner.setThreads(threads[0]);
+        run(WARMUP_RADIUS, seed, floor, realBiomes);
+
+        System.out.println();
+        System.out.printf("%8s %8s %7s %10s %9s %10s %9s %12s %11s%n", "threads", "chunks", "wrecks", "blocks", "seconds",
+                "chunks/s", "wrecks/s", "blocks/s", "alloc MB/s");
+        Result result = null;
+        for (int planners : threads) {
+            WreckPlanner.setThreads(planners);
+            for (int i = 0; i < repeat; ++i) {
+                result = run(radius, seed, floor, realBiomes);
+                double seconds = result.nanos / 1e9;
+                System.out.printf("%8d %8d %7d %10d %9.2f %10.0f %9.1f %12.0f %11.1f%n", planners, result.chunks, result.wrecks,
+                        result.blocks, seconds, result.chunks / seconds, result.wrecks / seconds, result.blocks / seconds,
+                        result.allocated / seconds / (1024 * 1024));
+            }
+        }
+        //the same in every run, the seeds fix where every wreck goes
+        if (result != null)
+            System.out.println("Wrecks by structure: " + result.structures);
+    }
+
+    /*
+     * Register vanilla content and load the config, structures and loot the way PostInit does
+     */
+    static void bootstrap(File config) {
+        Bootstrap.register();
+        ShipwreckConfig.load(config);
+        StructureRegistry.loadTemplates();
+        WreckBiomes.loadCategories();
+        LootRegistry.loadTables();
+    }
+
+    /*
+     * Populate every chunk in the square, then wait for the planners and place what is left
+     */
+    private static Result run(int radius, long seed, int floor, boolean realBiomes) {
+        MemoryWorld world = new MemoryWorld(seed, floor, realBiomes ? null : new MemoryWorld.BandedBiomes());
+        ShipwreckGen gen = new ShipwreckGen();
+        Result result = new Result();
+
+        Map<Long, Long> allocatedBefore = getAllocatedBytes();
+        long start = System.nanoTime();
+
+        for (int chunkZ = -radius; chunkZ < radius; ++chunkZ) {
+            for (int chunkX = -radius; chunkX < radius; ++chunkX) {
+                //a chunk is populated once it and its +x, +z and +xz neighbours exist, like vanilla
+                world.getChunkProvider().provideChunk(chunkX, chunkZ);
+                world.getChunkProvider().provideChunk(chunkX + 1, chunkZ);
+                world.getChunkProvider().provideChunk(chunkX, chunkZ + 1);
+                world.getChunkProvider().provideChunk(chunkX + 1, chunkZ + 1);
+                //and is flagged populated before the generators run
+                world.getChunkProvider().provideChunk(chunkX, chunkZ).setTerrainPopulated(true);
+                gen.generate(new Random(seed ^ ChunkPos.asLong(chunkX, chunkZ)), chunkX, chunkZ, world, null,
+                        world.getChunkProvider());
+                ++result.chunks;
+            }
+            placeFinished(gen, world, result); //once per row, about what a server gets through per tick while exploring
+        }
+
+        while (!WreckPlanner.isIdle())
+            LockSupport.parkNanos(WAIT_NANOS);
+        placeFinished(gen, world, result);
+
+        result.nanos = System.nanoTime() - start;
+        Map<Long, Long> allocatedAfter = getAllocatedBytes();
+        for (Map.Entry<Long, Long> thread : allocatedAfter.entrySet())
+            result.allocated += thread.getValue() - allocatedBefore.getOrDefault(thread.getKey(), 0L);
+
+        WreckFootprints.unload(world);
+        return result;
+    }
+
+    private static void placeFinished(ShipwreckGen gen, MemoryWorld world, Result result) {
+        WreckPlan plan;
+        while ((plan = WreckPlanner.poll()) != null) {
+            if (plan.cancelled) {
+                WreckFootprints.get(world).release(plan.origin);
+                continue;
+            }
+            gen.applyPlan(world, plan);
+            ++result.wrecks;
+            result.blocks += plan.positions.length;
+            result.structures.merge(plan.structure, 1, Integer::sum);
+        }
+    }
+
+    /*
+     * Bytes allocated so far by each live thread, so planner threads are counted too
+     */
+    private static Map<Long, Long> getAllocatedBytes() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> allocated = new HashMap<>();
+        for (int i = 0; i < ids.length; ++i)
+            if (bytes[i] >= 0)
+                allocated.put(ids[i], bytes[i]);
+        return allocated;
+    }
+}
@@ -0,0 +1,250 @@
+package winslow.shipwrecks;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/*
+ * Command line Monte Carlo simulator for balancing loot pools and structure weights. Rolls chests and wreck sites
+ * with the same samplers and in the same order as the game, spread over every core with fork/join. Each task gets
+ * its own Random seeded from the run seed and its range, so a run is repeatable. Needs the mod's libraries on the
+ * classpath (the config is read with Forge's Configuration) but not a Minecraft server.
+ *
+ * usage: LootSimulator [-n trials] [-seed seed] [-config file.cfg] [-loot directory ...]
+ * defaults to 1000000 trials, ./config/<modid>.cfg, and ./loot over the mod's loot assets (when run from the source tree)
+ */
+public final class LootSimulator {
+    private static final String DEFAULT_CONFIG = "./config/" + ShipwrecksMain.MODID + ".cfg";
+    private static final String[] DEFAULT_LOOT_PATHS = {"./loot", "./main/resources/assets/" + ShipwrecksMain.MODID + "/loot"};
+    private static final int TASK_SIZE = 20000; //trials per fork/join leaf
+
+    private LootSimulator() {
+    }
+
+    /*
+     * One simulated trial. counts is the task's own result array, summed with the other tasks at the end.
+     */
+    private interface Trial {
+        void run(Random random, long[] counts, int[] scratch);
+    }
+
+    /*
+     * Splits a range of trials in half until it is small enough to run on one RNG
+     */
+    private static final class SimulationTask extends RecursiveTask<long[]> {
+        private final Trial trial;
+        private final int width;
+        private final int scratchSize; //working space reused by every trial in a task
+        private final long seed;
+        private final int from;
+        private final int to;
+
+        SimulationTask(Trial trial, int width, int scratchSize, long seed, int from, int to) {
+            this.trial = trial;
+            this.width = width;
+            this.scratchSize = scratchSize;
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected long[] compute() {
+            if (to - from > TASK_SIZE) {
+                int mid = (from + to) >>> 1;
+                SimulationTask left = new SimulationTask(trial, width, scratchSize, seed, from, mid);
+                left.fork();
+                long[] right = new SimulationTask(trial, width, scratchSize, seed, mid, to).compute();
+                long[] counts = left.join();
+                for (int i = 0; i < width; ++i)
+                    counts[i] += right[i];
+                return counts;
+            }
+
+            Random random = new Random(seed ^ (from * 0x9E3779B97F4A7C15L));
+            long[] counts = new long[width];
+            int[] scratch = new int[scratchSize];
+            for (int i = from; i < to; ++i)
+                trial.run(random, counts, scratch);
+            return counts;
+        }
+    }
+
+    public static void main(String[] args) {
+        int trials = 1000000;
+        long seed = System.nanoTime();
+        String config = DEFAULT_CONFIG;
+        String[] lootPaths = DEFAULT_LOOT_PATHS;
+
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "-n":
+                    trials = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "-config":
+                    config = args[++i];
+                    break;
+                case "-loot":
+                    lootPaths = Arrays.copyOfRange(args, i + 1, args.length);
+                    i = args.length;
+                    break;
+                default:
+                    System.out.println("Unknown argument " + args[i]);
+                    System.out.println("usage: LootSimulator [-n trials] [-seed seed] [-config file.cfg] [-loot directory ...]");
+                    System.exit(1);
+            }
+        }
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        System.out.println("Simulating " + trials + " trials with seed " + seed + " on " + pool.getParallelism() + " threads");
+
+        long start = System.nanoTime();
+        ShipwreckConfig.load(new File(config));
+        simulateSpawns(pool, trials, seed);
+
+        Map<String, LootData> tables = readTables(lootPaths);
+        if (tables.isEmpty())
+            System.out.println("No loot tables found in " + String.join(", ", lootPaths));
+        for (Map.Entry<String, LootData> table : tables.entrySet())
+            simulateLoot(pool, table.getKey(), table.getValue(), trials, seed);
+
+        System.out.println("Finished in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    /*
+     * Structure mix and structure picks for a grid cell in each biome category. Only the weights are simulated:
+     * the footprint biome check and overlap rejection in the game both need a world, so the rate is an upper bound.
+     */
+    private static void simulateSpawns(ForkJoinPool pool, int trials, long seed) {
+        String[] names = ShipwreckConfig.getNames();
+        int maxDist = ShipwreckConfig.getMaxDist();
+
+        for (boolean isOcean : new boolean[]{true, false}) {
+            //one count per structure name, then the cells that got no wreck (see WreckLocator.getStructureName)
+            AliasSampler sampler = isOcean ? ShipwreckConfig.getOceanSampler() : ShipwreckConfig.getBeachSampler();
+            Trial trial = (random, counts, scratch) -> {
+                int index = sampler.sample(random);
+                ++counts[index < 0 || index >= names.length ? names.length : index];
+            };
+            long[] counts = pool.invoke(new SimulationTask(trial, names.length + 1, 0, seed, 0, trials));
+
+            long wrecks = trials - counts[names.length];
+            System.out.println();
+            System.out.println((isOcean ? "Ocean" : "Beach") + " cells (" + trials + " simulated)");
+            System.out.printf("  at most %.2f wrecks per 1000 chunks (one cell per %d chunks, before footprint and overlap rejections)%n",
+                    1000.0 * wrecks / trials / (maxDist * maxDist), maxDist * maxDist);
+            for (int i = 0; i < names.length; ++i)
+                System.out.printf("  %-20s %6.2f%%%n", names[i], 100.0 * counts[i] / trials);
+        }
+    }
+
+    /*
+     * Fill simulated chests from one loot table. Later rolls replace earlier stacks in the same slot, like a real chest.
+     */
+    private static void simulateLoot(ForkJoinPool pool, String name, LootData data, int trials, long seed) {
+        //flatten every pool's entries into one list of items
+        int entryCount = 0;
+        int[] offsets = new int[data.pools.length];
+        AliasSampler[] samplers = new AliasSampler[data.pools.length];
+        for (int i = 0; i < data.pools.length; ++i) {
+            offsets[i] = entryCount;
+            entryCount += data.pools[i].items.length;
+            samplers[i] = new AliasSampler(data.pools[i].weights);
+        }
+        int entries = entryCount;
+
+        //counts: [0, entries) items, [entries, 2 * entries) chests holding the item, then stacks placed and stacks lost
+        //scratch: the entry in each slot, the count in each slot, then the trial each entry was last seen in
+        Trial trial = (random, counts, scratch) -> {
+            int stamp = ++scratch[LootData.CHEST_SLOTS * 2 + entries];
+            Arrays.fill(scratch, 0, LootData.CHEST_SLOTS, -1);
+
+            for (int p = 0; p < data.pools.length; ++p) {
+                LootData.Pool lootPool = data.pools[p];
+                int rolls = lootPool.getRolls(random);
+                for (int r = 0; r < rolls; ++r) {
+                    int idx = samplers[p].sample(random);
+                    if (idx < 0)
+                        break;
+                    int count = lootPool.getCount(idx, random);
+                    int slot = random.nextInt(LootData.CHEST_SLOTS);
+                    if (scratch[slot] >= 0)
+                        ++counts[entries * 2 + 1];
+                    scratch[slot] = offsets[p] + idx;
+                    scratch[LootData.CHEST_SLOTS + slot] = count;
+                    ++counts[entries * 2];
+                }
+            }
+
+            for (int slot = 0; slot < LootData.CHEST_SLOTS; ++slot) {
+                int entry = scratch[slot];
+                if (entry < 0)
+                    continue;
+                counts[entry] += scratch[LootData.CHEST_SLOTS + slot];
+                if (scratch[LootData.CHEST_SLOTS * 2 + entry] != stamp) {
+                    scratch[LootData.CHEST_SLOTS * 2 + entry] = stamp;
+                    ++counts[entries + entry];
+                }
+            }
+        };
+        long[] counts = pool.invoke(new SimulationTask(trial, entries * 2 + 2, LootData.CHEST_SLOTS * 2 + entries + 1, seed, 0, trials));
+
+        System.out.println();
+        System.out.println("Loot table " + name + " (" + trials + " chests simulated)");
+        for (int p = 0; p < data.pools.length; ++p) {
+            LootData.Pool lootPool = data.pools[p];
+            for (int i = 0; i < lootPool.items.length; ++i) {
+                int entry = offsets[p] + i;
+                String item = lootPool.data[i] == 0 ? lootPool.items[i] : lootPool.items[i] + ":" + lootPool.data[i];
+                System.out.printf("  %-30s %7.3f per chest, in %6.2f%% of chests%n", item,
+                        (double) counts[entry] / trials, 100.0 * counts[entries + entry] / trials);
+            }
+        }
+        long placed = counts[entries * 2];
+        System.out.printf("  %.2f stacks per chest, %.2f%% replaced by a later roll in the same slot%n",
+                (double) placed / trials, placed == 0 ? 0.0 : 100.0 * counts[entries * 2 + 1] / placed);
+    }
+
+    /*
+     * Read every loot table in the paths, earlier paths take priority like ./loot does in game
+     */
+    private static Map<String, LootData> readTables(String[] paths) {
+        Map<String, LootData> tables = new LinkedHashMap<>();
+        for (String path : paths) {
+            File[] files = new File(path).listFiles((dir, name) -> name.endsWith(".json"));
+            if (files == null)
+                continue;
+            Arrays.sort(files);
+
+            for (File file : files) {
+                String name = file.getName().substring(0, file.getName().length() - ".json".length());
+                if (tables.containsKey(name))
+                    continue;
+                try (Reader reader = new InputStreamReader(Files.newInputStream(file.toPath()), StandardCharsets.UTF_8)) {
+                    tables.put(name, LootData.fromJson((JsonObject) new JsonParser().parse(reader)));
+                } catch (JsonIOException | JsonSyntaxException | IOException | IllegalArgumentException
+                        | IllegalStateException | ClassCastException e) {
+                    System.out.println("Unable to load loot table " + file.getPath() + ": " + e.getMessage());
+                }
+            }
+        }
+        return tables;
+    }
+}
@@ -0,0 +1,184 @@
+package winslow.shipwrecks;
+
+import net.minecraft.init.Biomes;
+import net.minecraft.init.Blocks;
+import net.minecraft.profiler.Profiler;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.GameType;
+import net.minecraft.world.World;
+import net.minecraft.world.WorldProvider;
+import net.minecraft.world.WorldProviderSurface;
+import net.minecraft.world.WorldSettings;
+import net.minecraft.world.WorldType;
+import net.minecraft.world.biome.Biome;
+import net.minecraft.world.biome.BiomeProvider;
+import net.minecraft.world.chunk.Chunk;
+import net.minecraft.world.chunk.ChunkPrimer;
+import net.minecraft.world.chunk.IChunkProvider;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+import net.minecraft.world.storage.WorldInfo;
+
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Headless stand-in for an overworld, used by the generation simulator and the benchmarks: a flat stone seafloor
+ * under water up to sea level, with chunks kept in a map and no saving, lighting updates or ticking. Biomes come
+ * from the real biome provider for the seed, or from fixed bands of ocean and beach. Chunks only count as loaded
+ * once something has asked for them. Needs Bootstrap.register() first.
+ */
+class MemoryWorld extends World {
+    private final Map<Long, Chunk> chunks = new HashMap<>();
+    private final int floor;
+
+    MemoryWorld(long seed, int floor) {
+        this(seed, floor, null);
+    }
+
+    /*
+     * biomes replaces the seed's biome provider, null to keep it
+     */
+    MemoryWorld(long seed, int floor, @Nullable BiomeProvider biomes) {
+        super(null, new WorldInfo(new WorldSettings(seed, GameType.SURVIVAL, false, false, WorldType.DEFAULT), "memory"),
+                createProvider(biomes), new Profiler(), false);
+        this.floor = floor;
+        provider.setWorld(this);
+        chunkProvider = createChunkProvider();
+    }
+
+    private static WorldProvider createProvider(@Nullable BiomeProvider biomes) {
+        return new WorldProviderSurface() {
+            @Override
+            protected void init() {
+                super.init();
+                if (biomes != null)
+                    biomeProvider = biomes;
+            }
+        };
+    }
+
+    /*
+     * Biomes in bands 256 blocks wide along x, mostly ocean with a beach and a strip of land, so wrecks hit
+     * every biome check without depending on the seed
+     */
+    static final class BandedBiomes extends BiomeProvider {
+        private static final int BAND_SHIFT = 8;
+        private static final Biome[] BANDS = {Biomes.OCEAN, Biomes.OCEAN, Biomes.DEEP_OCEAN, Biomes.BEACH, Biomes.OCEAN,
+                Biomes.OCEAN, Biomes.DEEP_OCEAN, Biomes.PLAINS};
+
+        private static Biome getBand(int x) {
+            return BANDS[Math.floorMod(x >> BAND_SHIFT, BANDS.length)];
+        }
+
+        @Override
+        public Biome getBiome(BlockPos pos) {
+            return getBand(pos.getX());
+        }
+
+        @Override
+        public Biome getBiome(BlockPos pos, Biome defaultBiome) {
+            return getBand(pos.getX());
+        }
+
+        //generation biomes are a quarter resolution, one per 4x4 blocks
+        @Override
+        public Biome[] getBiomesForGeneration(Biome[] biomes, int x, int z, int width, int height) {
+            return fill(biomes, x << 2, width, height, 4);
+        }
+
+        @Override
+        public Biome[] getBiomes(@Nullable Biome[] oldBiomeList, int x, int z, int width, int depth) {
+            return fill(oldBiomeList, x, width, depth, 1);
+        }
+
+        @Override
+        public Biome[] getBiomes(@Nullable Biome[] listToReuse, int x, int z, int width, int length, boolean cacheFlag) {
+            return fill(listToReuse, x, width, length, 1);
+        }
+
+        @Override
+        public boolean areBiomesViable(int x, int z, int radius, List<Biome> allowed) {
+            for (int bandX = x - radius; bandX <= x + radius; ++bandX)
+                if (!allowed.contains(getBand(bandX)))
+                    return false;
+            return true;
+        }
+
+        private static Biome[] fill(@Nullable Biome[] biomes, int minX, int width, int depth, int scale) {
+            if (biomes == null || biomes.length < width * depth)
+                biomes = new Biome[width * depth];
+            for (int i = 0; i < width; ++i) {
+                Biome biome = getBand(minX + i * scale);
+                for (int j = 0; j < depth; ++j)
+                    biomes[j * width + i] = biome;
+            }
+            return biomes;
+        }
+    }
+
+    /*
+     * Generate every chunk a box touches and flag it populated, so blocks placed in it are written instead of deferred
+     */
+    void loadArea(StructureBoundingBox box) {
+        for (int chunkX = box.minX >> 4; chunkX <= box.maxX >> 4; ++chunkX)
+            for (int chunkZ = box.minZ >> 4; chunkZ <= box.maxZ >> 4; ++chunkZ)
+                chunkProvider.provideChunk(chunkX, chunkZ).setTerrainPopulated(true);
+    }
+
+    @Override
+    protected IChunkProvider createChunkProvider() {
+        return new IChunkProvider() {
+            @Nullable
+            @Override
+            public Chunk getLoadedChunk(int x, int z) {
+                return chunks.get(ChunkPos.asLong(x, z));
+            }
+
+            @Override
+            public Chunk provideChunk(int x, int z) {
+                return chunks.computeIfAbsent(ChunkPos.asLong(x, z), key -> generateChunk(x, z));
+            }
+
+            @Override
+            public boolean tick() {
+                return false;
+            }
+
+            @Override
+            public String makeString() {
+                return "MemoryWorld: " + chunks.size() + " chunks";
+            }
+
+            @Override
+            public boolean isChunkGeneratedAt(int x, int z) {
+                return chunks.containsKey(ChunkPos.asLong(x, z));
+            }
+        };
+    }
+
+    @Override
+    protected boolean isChunkLoaded(int x, int z, boolean allowEmpty) {
+        return chunks.containsKey(ChunkPos.asLong(x, z));
+    }
+
+    private Chunk generateChunk(int chunkX, int chunkZ) {
+        ChunkPrimer primer = new ChunkPrimer();
+        int seaLevel = getSeaLevel();
+        for (int x = 0; x < 16; ++x) {
+            for (int z = 0; z < 16; ++z) {
+                primer.setBlockState(x, 0, z, Blocks.BEDROCK.getDefaultState());
+                for (int y = 1; y <= floor; ++y)
+                    primer.setBlockState(x, y, z, Blocks.STONE.getDefaultState());
+                for (int y = floor + 1; y <= seaLevel; ++y)
+                    primer.setBlockState(x, y, z, Blocks.WATER.getDefaultState());
+            }
+        }
+
+        Chunk chunk = new Chunk(this, primer, chunkX, chunkZ);
+        chunk.generateSkylightMap();
+        return chunk;
+    }
+}
@@ -0,0 +1,570 @@
+package winslow.shipwrecks;
+
+import net.minecraft.block.Block;
+import net.minecraft.block.state.IBlockState;
+import net.minecraft.init.Blocks;
+import net.minecraft.nbt.CompressedStreamTools;
+import net.minecraft.nbt.NBTTagCompound;
+import net.minecraft.nbt.NBTTagList;
+import net.minecraft.tileentity.TileEntity;
+import net.minecraft.tileentity.TileEntityChest;
+import net.minecraft.util.datafix.DataFixer;
+import net.minecraft.util.datafix.DataFixesManager;
+import net.minecraft.util.datafix.FixTypes;
+import net.minecraft.util.math.BlockPos;
+import net.minecraft.util.math.ChunkPos;
+import net.minecraft.world.World;
+import net.minecraft.world.biome.BiomeProvider;
+import net.minecraft.world.chunk.NibbleArray;
+import net.minecraft.world.chunk.storage.AnvilSaveHandler;
+import net.minecraft.world.chunk.storage.RegionFile;
+import net.minecraft.world.gen.structure.StructureBoundingBox;
+import net.minecraft.world.storage.MapStorage;
+import net.minecraft.world.storage.WorldInfo;
+import net.minecraft.world.storage.WorldSavedData;
+import net.minecraftforge.common.util.Constants;
+
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Command line tool that adds wrecks to an existing world save without a server, writing them straight into the
+ * chunk NBT of its Anvil region files. It uses the same grid, biome rules, structures, fitting and plans as the live
+ * generator, but only for cells whose anchor chunk has already populated: those are the wrecks the live generator
+ * will never place, every other cell is left for it. Each wreck goes in whole or not at all, so wrecks reaching into
+ * chunks that haven't generated are skipped. Placed wrecks are added to the world's wreck index, which keeps the live
+ * generator (and a second run of this tool) from placing anything on top of them. The index is written right after
+ * each region's chunks, so a run that is cut short still has every stamped wreck recorded.
+ *
+ * Regions are stamped one per worker thread. A wreck only reaches into the regions next to the one its origin is in,
+ * so regions are done in 9 phases, 3 regions apart, and no two workers ever have the same region file open.
+ * Chunks are marked for relighting, which the game does when a player first comes near them.
+ *
+ * Stop the server first. The world's session lock is taken, so a server still running stops saving instead of
+ * overwriting the stamped chunks.
+ *
+ * usage: RegionStamper <world folder> [-threads n] [-config file.cfg]
+ * defaults to one thread per core and ./config/<modid>.cfg
+ */
+public final class RegionStamper {
+    private static final String DEFAULT_CONFIG = "./config/" + ShipwrecksMain.MODID + ".cfg";
+    private static final int DATA_VERSION = 1343; //1.12.2 chunk format, what the data fixer brings chunks up to
+    private static final int PHASES = 3; //per axis
+
+    private final File regionFolder;
+    private final File dataFolder;
+    private final ShipwreckConfig.Snapshot config;
+    private final int seaLevel;
+    private final DataFixer fixer = DataFixesManager.createFixer();
+    private final WreckIndex index;
+    private final WreckFootprints footprints; //also guards the index, workers share both
+
+    private final AtomicInteger stamped = new AtomicInteger();
+    private final AtomicInteger chests = new AtomicInteger();
+    private final AtomicInteger ungenerated = new AtomicInteger();
+    private final AtomicInteger overlapping = new AtomicInteger();
+
+    private RegionStamper(File worldFolder, int seaLevel, WreckIndex index) {
+        this.regionFolder = new File(worldFolder, "region");
+        this.dataFolder = new File(worldFolder, "data");
+        this.config = ShipwreckConfig.get();
+        this.seaLevel = seaLevel;
+        this.index = index;
+        this.footprints = WreckFootprints.create(index);
+    }
+
+    public static void main(String[] args) throws IOException {
+        File worldFolder = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        String config = DEFAULT_CONFIG;
+
+        for (int i = 0; i < args.length; ++i) {
+            switch (args[i]) {
+                case "-threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "-config":
+                    config = args[++i];
+                    break;
+                default:
+                    if (worldFolder == null && !args[i].startsWith("-")) {
+                        worldFolder = new File(args[i]);
+                        break;
+                    }
+                    System.out.println("Unknown argument " + args[i]);
+                    worldFolder = null;
+                    i = args.length;
+            }
+        }
+        if (worldFolder == null || !new File(worldFolder, "level.dat").isFile()) {
+            System.out.println("usage: RegionStamper <world folder> [-threads n] [-config file.cfg]");
+            System.exit(1);
+        }
+
+        GenerationSimulator.bootstrap(new File(config));
+
+        //biomes come from the world's own seed and world type, the same as the live generator reads them
+        WorldInfo info;
+        try (InputStream in = new FileInputStream(new File(worldFolder, "level.dat"))) {
+            info = new WorldInfo(CompressedStreamTools.readCompressed(in).getCompoundTag("Data"));
+        }
+        MemoryWorld biomes = new MemoryWorld(info.getSeed(), 0, new BiomeProvider(info));
+
+        File absolute = worldFolder.getAbsoluteFile();
+        AnvilSaveHandler saveHandler = new AnvilSaveHandler(absolute.getParentFile(), absolute.getName(), false,
+                DataFixesManager.createFixer());
+        MapStorage storage = new MapStorage(saveHandler);
+
+        RegionStamper stamper = new RegionStamper(absolute, biomes.getSeaLevel(), WreckIndex.get(storage));
+        long start = System.nanoTime();
+        int regions = stamper.run(biomes, threads);
+        storage.saveAllData();
+
+        System.out.printf("Stamped %d wrecks with %d chests into %d regions in %.1f s. Skipped %d that reach ungenerated "
+                        + "chunks and %d that overlap a wreck already there.%n", stamper.stamped.get(), stamper.chests.get(),
+                regions, (System.nanoTime() - start) / 1e9, stamper.ungenerated.get(), stamper.overlapping.get());
+    }
+
+    /*
+     * Stamp every region of the world, returns the number of region files
+     */
+    private int run(World biomes, int threads) throws IOException {
+        List<Long> regions = new ArrayList<>();
+        File[] files = regionFolder.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String[] parts = file.getName().split("\\.");
+                if (parts.length == 4 && parts[0].equals("r") && parts[3].equals("mca"))
+                    regions.add(ChunkPos.asLong(Integer.parseInt(parts[1]), Integer.parseInt(parts[2])));
+            }
+        }
+
+        System.out.println("Finding wreck sites in " + regions.size() + " regions");
+        Map<Long, List<WreckLocator.WreckSite>> sites = findSites(biomes, regions);
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            for (int phase = 0; phase < PHASES * PHASES; ++phase) {
+                List<Future<?>> tasks = new ArrayList<>();
+                for (Map.Entry<Long, List<WreckLocator.WreckSite>> region : sites.entrySet()) {
+                    int regionX = (int) (long) region.getKey();
+                    int regionZ = (int) (region.getKey() >> 32);
+                    if (Math.floorMod(regionX, PHASES) * PHASES + Math.floorMod(regionZ, PHASES) == phase)
+                        tasks.add(executor.submit(() -> stampRegion(regionX, regionZ, region.getValue())));
+                }
+                for (Future<?> task : tasks) {
+                    try {
+                        task.get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Interrupted", e);
+                    } catch (ExecutionException e) {
+                        System.out.println("Unable to stamp a region: " + e.getCause());
+                    }
+                }
+                System.out.println("Phase " + (phase + 1) + "/" + (PHASES * PHASES) + " done, " + stamped.get() + " wrecks so far");
+            }
+        } finally {
+            executor.shutdown();
+        }
+        return regions.size();
+    }
+
+    /*
+     * The wreck sites left to stamp, by the region their origin is in (ChunkPos.asLong of the region). Done on one
+     * thread since the biome layers aren't thread safe, and only reads each cell's anchor chunk.
+     */
+    private Map<Long, List<WreckLocator.WreckSite>> findSites(World biomes, List<Long> regions) throws IOException {
+        Map<Long, List<WreckLocator.WreckSite>> sites = new TreeMap<>();
+        Set<Long> regionSet = new HashSet<>(regions);
+        int max = config.maxDist;
+        for (long region : regions) {
+            int regionX = (int) region;
+            int regionZ = (int) (region >> 32);
+            int minChunkX = regionX << 5;
+            int minChunkZ = regionZ << 5;
+
+            try (RegionChunks chunks = new RegionChunks()) {
+                for (int cellX = -Math.floorDiv(-minChunkX, max); cellX * max < minChunkX + 32; ++cellX) {
+                    for (int cellZ = -Math.floorDiv(-minChunkZ, max); cellZ * max < minChunkZ + 32; ++cellZ) {
+                        //the live generator places a cell's wreck when its anchor chunk populates
+                        ChunkData anchor = chunks.get(cellX * max, cellZ * max);
+                        if (anchor == null || !anchor.isPopulated())
+                            continue;
+
+                        WreckLocator.WreckSite site = WreckLocator.getSite(biomes, config, cellX, cellZ);
+                        if (site == null)
+                            continue;
+                        long siteRegion = ChunkPos.asLong(site.pos.getX() >> 9, site.pos.getZ() >> 9);
+                        if (!regionSet.contains(siteRegion)) {
+                            ungenerated.incrementAndGet();
+                            continue;
+                        }
+                        sites.computeIfAbsent(siteRegion, key -> new ArrayList<>()).add(site);
+                    }
+                }
+            }
+        }
+        return sites;
+    }
+
+    private void stampRegion(int regionX, int regionZ, List<WreckLocator.WreckSite> sites) {
+        try (RegionChunks chunks = new RegionChunks()) {
+            for (WreckLocator.WreckSite site : sites) {
+                try {
+                    stamp(chunks, site);
+                } catch (RuntimeException e) {
+                    System.out.println("Unable to stamp the wreck at " + site.pos.getX() + ", " + site.pos.getZ() + ": " + e);
+                }
+            }
+            chunks.save();
+
+            //the index is what stops a later run stamping these wrecks again, so it can't wait for the end of the run
+            synchronized (footprints) {
+                WorldSavedData region = index.getRegionData(regionX, regionZ);
+                if (region != null && region.isDirty())
+                    saveData(region);
+                if (index.isDirty())
+                    saveData(index);
+            }
+        } catch (IOException e) {
+            System.out.println("Unable to stamp region r." + regionX + "." + regionZ + ": " + e.getMessage());
+        }
+    }
+
+    /*
+     * Write saved data the way MapStorage does, through a temporary file so a crash can't leave it half written
+     */
+    private void saveData(WorldSavedData data) throws IOException {
+        NBTTagCompound root = new NBTTagCompound();
+        root.setTag("data", data.writeToNBT(new NBTTagCompound()));
+
+        File file = new File(dataFolder, data.mapName + ".dat");
+        File temp = new File(dataFolder, data.mapName + ".dat.tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            CompressedStreamTools.writeCompressed(root, out);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        data.setDirty(false);
+    }
+
+    /*
+     * Plan and write one wreck, the same steps ShipwreckGen.startWreck and applyPlan take in a live world
+     */
+    private void stamp(RegionChunks chunks, WreckLocator.WreckSite site) throws IOException {
+        int x = site.pos.getX();
+        int z = site.pos.getZ();
+        ChunkData siteChunk = chunks.get(x >> 4, z >> 4);
+        if (siteChunk == null || !siteChunk.isPopulated()) {
+            ungenerated.incrementAndGet();
+            return;
+        }
+        BlockPos pos = new BlockPos(x, siteChunk.getFloor(x & 15, z & 15, seaLevel), z);
+
+        StructureTemplate template;
+        synchronized (footprints) {
+            template = ShipwreckGen.getFittingStructure(config, footprints, site, pos);
+        }
+        if (template == null) {
+            overlapping.incrementAndGet();
+            return;
+        }
+
+        WreckPlan plan = WreckPlanner.plan(config, 0, template.name, pos, seaLevel, new Random(site.planSeed));
+        if (plan == null)
+            return;
+
+        //all of it or none of it
+        StructureBoundingBox bounds = plan.bounds;
+        for (int chunkX = bounds.minX >> 4; chunkX <= bounds.maxX >> 4; ++chunkX) {
+            for (int chunkZ = bounds.minZ >> 4; chunkZ <= bounds.maxZ >> 4; ++chunkZ) {
+                ChunkData chunk = chunks.get(chunkX, chunkZ);
+                if (chunk == null || !chunk.isPopulated()) {
+                    ungenerated.incrementAndGet();
+                    return;
+                }
+            }
+        }
+
+        Map<Long, Integer> chestIndex = new HashMap<>();
+        for (int i = 0; i < plan.chestPositions.length; ++i)
+            chestIndex.put(plan.chestPositions[i], i);
+
+        //work out every block and tile entity before touching a chunk, so a failure part way leaves them as they were
+        List<BlockPos> blocks = new ArrayList<>(plan.positions.length);
+        List<IBlockState> states = new ArrayList<>(plan.positions.length);
+        Map<BlockPos, NBTTagCompound> tileEntities = new HashMap<>();
+        for (int i = 0; i < plan.positions.length; ++i) {
+            BlockPos blkPos = BlockPos.fromLong(plan.positions[i]);
+            if (blkPos.getY() < 0 || blkPos.getY() > 255)
+                continue;
+            IBlockState state = plan.states[i];
+            blocks.add(blkPos);
+            states.add(state);
+
+            if (!state.getBlock().hasTileEntity(state))
+                continue;
+            TileEntity tileEntity = state.getBlock().createTileEntity(null, state);
+            if (tileEntity == null)
+                continue;
+            tileEntity.setPos(blkPos);
+            Integer chest = chestIndex.get(plan.positions[i]);
+            if (chest != null && tileEntity instanceof TileEntityChest)
+                ShipwreckLoot.fillChest((TileEntityChest) tileEntity, plan.chestLoot[chest], plan.chestSeeds[chest]);
+            tileEntities.put(blkPos, tileEntity.writeToNBT(new NBTTagCompound()));
+        }
+
+        for (int i = 0; i < blocks.size(); ++i) {
+            BlockPos blkPos = blocks.get(i);
+            chunks.get(blkPos.getX() >> 4, blkPos.getZ() >> 4).setState(blkPos, states.get(i));
+        }
+        for (Map.Entry<BlockPos, NBTTagCompound> entry : tileEntities.entrySet())
+            chunks.get(entry.getKey().getX() >> 4, entry.getKey().getZ() >> 4).setTileEntity(entry.getKey(), entry.getValue());
+
+        synchronized (footprints) {
+            WreckRecord record = WreckRecord.fromPlan(plan);
+            index.add(record);
+            footprints.place(record);
+        }
+        stamped.incrementAndGet();
+        chests.addAndGet(plan.chestPositions.length);
+    }
+
+    /*
+     * Chunks read from the region files by one worker, written back by save
+     */
+    private final class RegionChunks implements Closeable {
+        private final Map<Long, RegionFile> regions = new HashMap<>(); //null for regions with no file
+        private final Map<Long, ChunkData> chunks = new HashMap<>(); //null for chunks that don't exist
+
+        /*
+         * Get a chunk, null if it hasn't been generated
+         */
+        ChunkData get(int chunkX, int chunkZ) throws IOException {
+            long key = ChunkPos.asLong(chunkX, chunkZ);
+            if (chunks.containsKey(key))
+                return chunks.get(key);
+
+            ChunkData chunk = null;
+            RegionFile region = getRegion(chunkX, chunkZ);
+            DataInputStream in = region == null ? null : region.getChunkDataInputStream(chunkX & 31, chunkZ & 31);
+            if (in != null) {
+                try (DataInputStream data = in) {
+                    chunk = new ChunkData(fixer.process(FixTypes.CHUNK, CompressedStreamTools.read(data)));
+                }
+            }
+            chunks.put(key, chunk);
+            return chunk;
+        }
+
+        private RegionFile getRegion(int chunkX, int chunkZ) {
+            long key = ChunkPos.asLong(chunkX >> 5, chunkZ >> 5);
+            if (regions.containsKey(key))
+                return regions.get(key);
+            File file = new File(regionFolder, "r." + (chunkX >> 5) + "." + (chunkZ >> 5) + ".mca");
+            RegionFile region = file.isFile() ? new RegionFile(file) : null;
+            regions.put(key, region);
+            return region;
+        }
+
+        /*
+         * Write every chunk that had blocks stamped into it
+         */
+        void save() throws IOException {
+            for (Map.Entry<Long, ChunkData> entry : chunks.entrySet()) {
+                ChunkData chunk = entry.getValue();
+                if (chunk == null || !chunk.dirty)
+                    continue;
+                int chunkX = (int) (long) entry.getKey();
+                int chunkZ = (int) (entry.getKey() >> 32);
+                chunk.finish();
+                try (DataOutputStream out = getRegion(chunkX, chunkZ).getChunkDataOutputStream(chunkX & 31, chunkZ & 31)) {
+                    CompressedStreamTools.write(chunk.root, out);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            for (RegionFile region : regions.values())
+                if (region != null)
+                    region.close();
+        }
+    }
+
+    /*
+     * One chunk's NBT, with its sections and tile entities unpacked for stamping. Block ids are packed the way
+     * BlockStateContainer saves them: Blocks holds the low 8 bits of the id, Add the next 4 and Data the metadata.
+     */
+    private static final class ChunkData {
+        final NBTTagCompound root;
+        private final NBTTagCompound level;
+        private final NBTTagCompound[] sections = new NBTTagCompound[16];
+        private final Map<BlockPos, NBTTagCompound> tileEntities = new HashMap<>();
+        private final int[] heightMap;
+        private final BitSet columns = new BitSet(256); //columns whose height map needs redoing
+        boolean dirty = false;
+
+        ChunkData(NBTTagCompound root) {
+            this.root = root;
+            this.level = root.getCompoundTag("Level");
+
+            NBTTagList sectionList = level.getTagList("Sections", Constants.NBT.TAG_COMPOUND);
+            for (int i = 0; i < sectionList.tagCount(); ++i) {
+                NBTTagCompound section = sectionList.getCompoundTagAt(i);
+                int y = section.getByte("Y");
+                if (y >= 0 && y < sections.length)
+                    sections[y] = section;
+            }
+
+            NBTTagList tileList = level.getTagList("TileEntities", Constants.NBT.TAG_COMPOUND);
+            for (int i = 0; i < tileList.tagCount(); ++i) {
+                NBTTagCompound tag = tileList.getCompoundTagAt(i);
+                tileEntities.put(new BlockPos(tag.getInteger("x"), tag.getInteger("y"), tag.getInteger("z")), tag);
+            }
+
+            int[] heights = level.getIntArray("HeightMap");
+            heightMap = heights.length == 256 ? heights : new int[256];
+        }
+
+        boolean isPopulated() {
+            return level.getBoolean("TerrainPopulated");
+        }
+
+        /*
+         * The same walk down a column as Seafloor.getHeight, x and z within the chunk
+         */
+        int getFloor(int x, int z, int seaLevel) {
+            int y = Math.min(seaLevel, heightMap[z << 4 | x] - 1);
+            while (y > 0) {
+                if (sections[y >> 4] == null) { //empty section, all air
+                    y = (y & ~15) - 1;
+                    continue;
+                }
+
+                Block block = getState(x, y, z).getBlock();
+                if (block != Blocks.WATER && block != Blocks.AIR)
+                    break;
+                --y;
+            }
+            return Math.max(y, 0);
+        }
+
+        private IBlockState getState(int x, int y, int z) {
+            NBTTagCompound section = sections[y >> 4];
+            if (section == null)
+                return Blocks.AIR.getDefaultState();
+
+            int id = section.getByteArray("Blocks")[(y & 15) << 8 | z << 4 | x] & 255;
+            if (section.hasKey("Add", Constants.NBT.TAG_BYTE_ARRAY))
+                id |= new NibbleArray(section.getByteArray("Add")).get(x, y & 15, z) << 8;
+            int meta = new NibbleArray(section.getByteArray("Data")).get(x, y & 15, z);
+
+            IBlockState state = Block.BLOCK_STATE_IDS.getByValue(id << 4 | meta);
+            return state != null ? state : Block.getBlockById(id).getDefaultState();
+        }
+
+        void setState(BlockPos pos, IBlockState state) {
+            int x = pos.getX() & 15;
+            int y = pos.getY();
+            int z = pos.getZ() & 15;
+
+            int id = Block.BLOCK_STATE_IDS.get(state);
+            if (id < 0)
+                id = Block.getIdFromBlock(state.getBlock()) << 4 | state.getBlock().getMetaFromState(state);
+
+            NBTTagCompound section = getSection(y >> 4);
+            section.getByteArray("Blocks")[(y & 15) << 8 | z << 4 | x] = (byte) (id >> 4);
+            if (id >> 12 != 0 || section.hasKey("Add", Constants.NBT.TAG_BYTE_ARRAY)) {
+                if (!section.hasKey("Add", Constants.NBT.TAG_BYTE_ARRAY))
+                    section.setByteArray("Add", new byte[2048]);
+                new NibbleArray(section.getByteArray("Add")).set(x, y & 15, z, id >> 12 & 15);
+            }
+            new NibbleArray(section.getByteArray("Data")).set(x, y & 15, z, id & 15);
+
+            tileEntities.remove(pos);
+            columns.set(z << 4 | x);
+            dirty = true;
+        }
+
+        void setTileEntity(BlockPos pos, NBTTagCompound tag) {
+            tileEntities.put(pos, tag);
+        }
+
+        private NBTTagCompound getSection(int sectionY) {
+            if (sections[sectionY] == null) {
+                NBTTagCompound section = new NBTTagCompound();
+                section.setByte("Y", (byte) sectionY);
+                section.setByteArray("Blocks", new byte[4096]);
+                section.setByteArray("Data", new byte[2048]);
+                section.setByteArray("BlockLight", new byte[2048]);
+                byte[] skyLight = new byte[2048];
+                Arrays.fill(skyLight, (byte) 0xFF);
+                section.setByteArray("SkyLight", skyLight);
+                sections[sectionY] = section;
+            }
+            return sections[sectionY];
+        }
+
+        /*
+         * Put the sections, tile entities and height map back into the NBT and have the game relight the chunk
+         */
+        void finish() {
+            NBTTagList sectionList = new NBTTagList();
+            for (NBTTagCompound section : sections)
+                if (section != null)
+                    sectionList.appendTag(section);
+            level.setTag("Sections", sectionList);
+
+            NBTTagList tileList = new NBTTagList();
+            for (NBTTagCompound tag : tileEntities.values())
+                tileList.appendTag(tag);
+            level.setTag("TileEntities", tileList);
+
+            //height of the first block from the top that blocks any light, like Chunk.generateHeightMap
+            for (int column = columns.nextSetBit(0); column >= 0; column = columns.nextSetBit(column + 1)) {
+                int x = column & 15;
+                int z = column >> 4;
+                int height = 0;
+                for (int y = 255; y >= 0; --y) {
+                    if (sections[y >> 4] == null) {
+                        y &= ~15;
+                        continue;
+                    }
+                    if (getState(x, y, z).getLightOpacity() != 0) {
+                        height = y + 1;
+                        break;
+                    }
+                }
+                heightMap[column] = height;
+            }
+            level.setIntArray("HeightMap", heightMap);
+            level.setBoolean("LightPopulated", false);
+            root.setInteger("DataVersion", DATA_VERSION);
+        }
+    }
+}